@@ -0,0 +1,79 @@
+package us.gibb.dev.vo_gen;
+
+import japa.parser.JavaParser;
+import japa.parser.ast.CompilationUnit;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * A synthetic package of entity classes together with the result of every phase, so each benchmark can
+ * start from the output of the phase before it
+ */
+@State(Scope.Benchmark)
+public class Corpus {
+    static final String PACKAGE = "bench.model";
+    static final String DEFAULT_PACKAGE = "bench.model.vo";
+
+    /**
+     * Number of classes in the package
+     */
+    @Param("1000")
+    public int classes;
+
+    /**
+     * Number of fields of each class
+     */
+    @Param("20")
+    public int fields;
+
+    File srcDir;
+    File packageDir;
+    File outDir;
+    VOGen gen;
+    List<File> files;
+    List<byte[]> contents;
+    List<CompilationUnit> units;
+    List<ClassInfo> infos;
+
+    @Setup
+    public void setUp() throws Exception {
+        File root = File.createTempFile("vo-gen-bench", "");
+        root.delete();
+        srcDir = new File(root, "src");
+        outDir = new File(root, "out");
+        packageDir = new File(srcDir, PACKAGE.replace('.', '/'));
+        files = new SyntheticModel(classes, fields, fields).writePackage(srcDir, PACKAGE, classes);
+
+        gen = new VOGen();
+        gen.setSrcDir(srcDir);
+        gen.setOutDir(outDir);
+        gen.setDefaultPackage(DEFAULT_PACKAGE);
+        gen.setPackages(new String[]{PACKAGE});
+
+        contents = new ArrayList<byte[]>(files.size());
+        units = new ArrayList<CompilationUnit>(files.size());
+        infos = new ArrayList<ClassInfo>(files.size());
+        for (File file : files) {
+            byte[] content = FileUtils.readFileToByteArray(file);
+            CompilationUnit cu = JavaParser.parse(new ByteArrayInputStream(content));
+            contents.add(content);
+            units.add(cu);
+            infos.add(gen.extract(PACKAGE, file, cu));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(srcDir.getParentFile());
+    }
+}
@@ -0,0 +1,42 @@
+package us.gibb.dev.vo_gen;
+
+import japa.parser.ast.CompilationUnit;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Extracts the fields and their accessors from the parsed sources of a package
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ExtractBenchmark {
+
+    @Benchmark
+    public void extract(Corpus corpus, Blackhole blackhole) {
+        for (int i = 0; i < corpus.units.size(); i++) {
+            blackhole.consume(corpus.gen.extract(Corpus.PACKAGE, corpus.files.get(i), corpus.units.get(i)));
+        }
+    }
+
+    /**
+     * Only the accessor index, which the extraction builds for every type
+     */
+    @Benchmark
+    public void memberIndex(Corpus corpus, Blackhole blackhole) {
+        for (CompilationUnit cu : corpus.units) {
+            blackhole.consume(MemberIndex.of(cu.getTypes().get(0)));
+        }
+    }
+}
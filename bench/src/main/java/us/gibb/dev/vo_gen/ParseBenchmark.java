@@ -0,0 +1,44 @@
+package us.gibb.dev.vo_gen;
+
+import japa.parser.JavaParser;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Parses the sources of a package, read into memory beforehand
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParseBenchmark {
+
+    @Benchmark
+    public void parse(Corpus corpus, Blackhole blackhole) throws Exception {
+        for (byte[] content : corpus.contents) {
+            blackhole.consume(JavaParser.parse(new ByteArrayInputStream(content)));
+        }
+    }
+
+    /**
+     * Only the declarations, with the scanner front end
+     */
+    @Benchmark
+    public void scan(Corpus corpus, Blackhole blackhole) throws Exception {
+        SignatureScanner scanner = new SignatureScanner();
+        for (int i = 0; i < corpus.contents.size(); i++) {
+            blackhole.consume(scanner.read(corpus.files.get(i), corpus.contents.get(i)));
+        }
+    }
+}
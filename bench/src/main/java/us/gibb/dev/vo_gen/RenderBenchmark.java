@@ -0,0 +1,55 @@
+package us.gibb.dev.vo_gen;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Renders the VOs (VO.vm) and the converter (VOs.vm) of a package
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RenderBenchmark {
+
+    @Param({Emitters.VELOCITY, Emitters.JAVA})
+    public String emitter;
+
+    private Emitter instance;
+    private final StringBuilder out = new StringBuilder(64 * 1024);
+
+    @Setup
+    public void setUp() throws Exception {
+        instance = Emitters.forName(emitter);
+    }
+
+    @Benchmark
+    public void renderVOs(Corpus corpus, Blackhole blackhole) throws Exception {
+        for (ClassInfo info : corpus.infos) {
+            out.setLength(0);
+            instance.emitVO(info, out);
+            blackhole.consume(out.toString());
+        }
+    }
+
+    @Benchmark
+    public String renderConverter(Corpus corpus) throws Exception {
+        out.setLength(0);
+        instance.emitConverter(Corpus.DEFAULT_PACKAGE, corpus.infos, out);
+        return out.toString();
+    }
+}
@@ -0,0 +1,61 @@
+package us.gibb.dev.vo_gen;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Writes the rendered VOs of a package to the output directory, after the first iteration the files
+ * already exist so write-if-changed measures a no-op build
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WriteBenchmark {
+
+    @Param({"false", "true"})
+    public boolean writeIfChanged;
+
+    private final List<String> paths = new ArrayList<String>();
+    private final List<String> sources = new ArrayList<String>();
+    private final Set<String> outputs = new HashSet<String>();
+
+    @Setup
+    public void setUp(Corpus corpus) throws Exception {
+        Emitter emitter = new JavaEmitter();
+        for (ClassInfo info : corpus.infos) {
+            StringBuilder out = new StringBuilder();
+            emitter.emitVO(info, out);
+            paths.add(info.getOutputPath());
+            sources.add(out.toString());
+        }
+        outputs.addAll(paths);
+    }
+
+    @Benchmark
+    public void write(Corpus corpus) throws Exception {
+        OutputSink sink = new FileSystemSink(corpus.outDir, writeIfChanged, corpus.gen.getLog());
+        sink.start(false);
+        for (int i = 0; i < paths.size(); i++) {
+            sink.write(paths.get(i), sources.get(i));
+        }
+        sink.finish(outputs);
+    }
+}
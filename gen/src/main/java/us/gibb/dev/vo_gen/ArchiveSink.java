@@ -0,0 +1,128 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package us.gibb.dev.vo_gen;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Streams the sources into a single jar/zip archive instead of one file per source. Entries are written
+ * in generation order and all carry the same timestamp, so generating the same sources gives the same
+ * archive.
+ * <p>
+ * The archive is rewritten by every generation, it is written next to the target and moved over it when
+ * complete.
+ */
+public class ArchiveSink implements OutputSink {
+
+    /**
+     * Timestamp of all entries, 1 January 1980 UTC
+     */
+    public static final long DEFAULT_TIME = defaultTime();
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File archive;
+    private final long time;
+    private File tmp;
+    private ZipOutputStream out;
+
+    public ArchiveSink(File archive) {
+        this(archive, DEFAULT_TIME);
+    }
+
+    public ArchiveSink(File archive, long time) {
+        this.archive = archive;
+        this.time = time;
+    }
+
+    public File getArchive() {
+        return archive;
+    }
+
+    public void start(boolean incremental) throws IOException {
+        File dir = archive.getAbsoluteFile().getParentFile();
+        FileUtils.forceMkdir(dir);
+        tmp = new File(dir, archive.getName()+".tmp");
+        out = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), BUFFER_SIZE));
+    }
+
+    /**
+     * Nothing survives from a previous generation
+     */
+    public boolean exists(String path) {
+        return false;
+    }
+
+    public void write(String path, CharSequence content) throws IOException {
+        ZipEntry entry = new ZipEntry(path);
+        // entries keep the local time, shifted so every time zone writes the same one
+        entry.setTime(time - TimeZone.getDefault().getOffset(time));
+        out.putNextEntry(entry);
+        out.write(content.toString().getBytes(ENCODING));
+        out.closeEntry();
+    }
+
+    public void remove(String path) {
+    }
+
+    public void finish(Set<String> outputs) throws IOException {
+        try {
+            out.close();
+            if (archive.exists()) {
+                FileUtils.forceDelete(archive);
+            }
+            FileUtils.moveFile(tmp, archive);
+        } finally {
+            FileUtils.deleteQuietly(tmp);
+        }
+    }
+
+    /**
+     * Removes the incomplete archive, the previous one is kept
+     */
+    public void abort() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                // deleted anyway
+            }
+        }
+        FileUtils.deleteQuietly(tmp);
+    }
+
+    private static long defaultTime() {
+        Calendar calendar = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+        calendar.clear();
+        calendar.set(1980, Calendar.JANUARY, 1);
+        return calendar.getTimeInMillis();
+    }
+}
@@ -0,0 +1,290 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package us.gibb.dev.vo_gen;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Persistent cache of the class infos extracted from source files, keyed by the path and content hash of
+ * the source. Unlike the manifest it does not depend on the generated files, so a restored cache lets a
+ * clean build skip parsing every source that did not change.
+ * <p>
+ * The file starts with the format and generator version, followed by an index of every source and the
+ * offset of its record. It is memory mapped, the index is decoded on the first lookup and a record only
+ * when it is looked up. Every generation writes a new file with the class infos it used, so removed
+ * sources drop out.
+ * <p>
+ * Every record also holds the class as it was added to the {@link TypeIndex}, so a restored class is
+ * indexed without parsing it, also when a subclass looks it up as its superclass.
+ */
+class ClassCache {
+    static final String FILE_NAME = "vo-gen.cache";
+
+    private static final int MAGIC = 0x564f4743;
+
+    /**
+     * Bump when the cache format changes
+     */
+    private static final int FORMAT = 4;
+
+    /**
+     * Bump when the extraction of the class infos changes
+     */
+    private static final int EXTRACTOR_REVISION = 4;
+
+    private final File file;
+    private final Log log;
+    /**
+     * The mapped file from the index on, null if the cache is empty
+     */
+    private ByteBuffer buffer;
+    private Map<String, Record> index;
+    private ByteBuffer records;
+    private final Map<String, Entry> next = new LinkedHashMap<String, Entry>();
+
+    private ClassCache(File file, Log log, ByteBuffer buffer) {
+        this.file = file;
+        this.log = log;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Maps the cache in the directory, the cache is empty if there is none or it was written by another
+     * version of the generator. Only the version is read.
+     */
+    static ClassCache open(File dir, Log log) {
+        File file = new File(dir, FILE_NAME);
+        if (!file.isFile()) {
+            return new ClassCache(file, log, null);
+        }
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(file, "r");
+            // the mapping stays valid once the file is closed
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+            DataInputStream in = new DataInputStream(new ByteBufferInputStream(buffer));
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT || !in.readUTF().equals(generatorVersion())) {
+                log.info("Ignoring cache {0} of another generator version", file.getAbsolutePath());
+                return new ClassCache(file, log, null);
+            }
+            return new ClassCache(file, log, buffer.slice());
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable cache {0}", file.getAbsolutePath());
+            return new ClassCache(file, log, null);
+        } finally {
+            close(raf);
+        }
+    }
+
+    /**
+     * Decodes the index on the first lookup
+     */
+    private synchronized Map<String, Record> index() {
+        if (index != null) {
+            return index;
+        }
+        index = new HashMap<String, Record>();
+        if (buffer == null) {
+            return index;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new ByteBufferInputStream(buffer));
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String path = in.readUTF();
+                String hash = in.readUTF();
+                index.put(path, new Record(hash, in.readInt()));
+            }
+            records = buffer.slice();
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable cache {0}", file.getAbsolutePath());
+            index.clear();
+        }
+        buffer = null;
+        return index;
+    }
+
+    /**
+     * The class info cached for the source with the content hash, null if there is none. Called
+     * concurrently.
+     */
+    Entry get(String path, String hash) throws IOException {
+        Record record = index().get(path);
+        if (record == null || !record.hash.equals(hash)) {
+            return null;
+        }
+        ByteBuffer buffer = records.duplicate();
+        buffer.position(record.offset);
+        DataInputStream in = new DataInputStream(new ByteBufferInputStream(buffer));
+        ClassInfo info = in.readBoolean() ? ClassInfo.readFrom(in) : null;
+        String superclasses = in.readUTF();
+        return new Entry(hash, info, superclasses, in.readBoolean() ? TypeIndex.Type.readFrom(in) : null);
+    }
+
+    /**
+     * Keeps the class info of a source for the next generation, info is null if it does not declare a type
+     * 
+     * @param superclasses the superclasses the info inherits from, see {@link TypeIndex#dependencies}
+     * @param type the class as it was indexed, null if there is no info
+     */
+    void put(String path, String hash, ClassInfo info, String superclasses, TypeIndex.Type type) {
+        next.put(path, new Entry(hash, info, superclasses, type));
+    }
+
+    /**
+     * Writes the class infos put since the cache was opened, replacing the cache in the directory
+     */
+    void save(File dir) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(bytes);
+        Map<String, Integer> offsets = new HashMap<String, Integer>();
+        for (Map.Entry<String, Entry> entry : next.entrySet()) {
+            offsets.put(entry.getKey(), data.size());
+            ClassInfo info = entry.getValue().info;
+            data.writeBoolean(info != null);
+            if (info != null) {
+                info.writeTo(data);
+            }
+            data.writeUTF(entry.getValue().superclasses);
+            TypeIndex.Type type = entry.getValue().type;
+            data.writeBoolean(type != null);
+            if (type != null) {
+                type.writeTo(data);
+            }
+        }
+        data.close();
+
+        FileUtils.forceMkdir(dir);
+        File tmp = new File(dir, FILE_NAME+".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            out.writeUTF(generatorVersion());
+            out.writeInt(next.size());
+            for (Map.Entry<String, Entry> entry : next.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeUTF(entry.getValue().hash);
+                out.writeInt(offsets.get(entry.getKey()));
+            }
+            bytes.writeTo(out);
+        } finally {
+            out.close();
+        }
+        File file = new File(dir, FILE_NAME);
+        if (!tmp.renameTo(file)) {
+            // the old cache may still be mapped
+            FileUtils.copyFile(tmp, file);
+            FileUtils.deleteQuietly(tmp);
+        }
+    }
+
+    private static void close(RandomAccessFile raf) {
+        if (raf != null) {
+            try {
+                raf.close();
+            } catch (IOException e) {
+                // the mapping is already made
+            }
+        }
+    }
+
+    int size() {
+        return index().size();
+    }
+
+    /**
+     * Version of the generator the cached class infos were extracted by
+     */
+    static String generatorVersion() {
+        Package p = ClassCache.class.getPackage();
+        String version = p == null ? null : p.getImplementationVersion();
+        return (version == null ? "dev" : version)+"/"+EXTRACTOR_REVISION;
+    }
+
+    private static class Record {
+        final String hash;
+        final int offset;
+
+        Record(String hash, int offset) {
+            this.hash = hash;
+            this.offset = offset;
+        }
+    }
+
+    /**
+     * A cached source, info and type are null if it does not declare a type
+     */
+    static class Entry {
+        final String hash;
+        final ClassInfo info;
+        final String superclasses;
+        final TypeIndex.Type type;
+
+        Entry(String hash, ClassInfo info, String superclasses, TypeIndex.Type type) {
+            this.hash = hash;
+            this.info = info;
+            this.superclasses = superclasses;
+            this.type = type;
+        }
+    }
+
+    /**
+     * Reads a buffer from its position, the buffer is not shared between threads
+     */
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            len = Math.min(len, buffer.remaining());
+            buffer.get(b, off, len);
+            return len;
+        }
+    }
+}
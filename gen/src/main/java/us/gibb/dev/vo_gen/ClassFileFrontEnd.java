@@ -0,0 +1,377 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package us.gibb.dev.vo_gen;
+
+import java.io.File;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the signature of a compiled class from its class file without loading it. Only the constant pool
+ * entries of the names and types are decoded, the code of the methods is skipped by its length.
+ * <p>
+ * Classes are printed by their qualified name, generic types from the signature attributes, so the
+ * {@link SymbolTable} resolves them without imports. Thread safe.
+ */
+public class ClassFileFrontEnd implements FrontEnd {
+    static final String SUFFIX = ".class";
+
+    private static final int ACC_BRIDGE = 0x0040;
+    private static final int ACC_SYNTHETIC = 0x1000;
+    private static final int ACC_MODULE = 0x8000;
+
+    public TypeSignature read(File file, byte[] content) throws Exception {
+        return new ClassFile(content).signature();
+    }
+
+    /**
+     * The state of reading one class file
+     */
+    private static class ClassFile {
+        private static final int UTF8 = 1;
+        private static final int CLASS = 7;
+
+        private final byte[] bytes;
+        private int pos;
+
+        /**
+         * Offset of every constant pool entry, the tag is at the offset
+         */
+        private int[] entries;
+
+        ClassFile(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        TypeSignature signature() throws ParseException {
+            if (u4() != 0xCAFEBABE) {
+                throw new ParseException("Not a class file", 0);
+            }
+            pos += 4; // version
+            constantPool();
+            int access = u2();
+            String className = className(u2());
+            if ((access & (ACC_SYNTHETIC | ACC_MODULE)) != 0 || className.endsWith("package-info")) {
+                return null;
+            }
+            int superclass = u2();
+            int interfaces = u2();
+            pos += 2 * interfaces;
+
+            TypeSignature signature = new TypeSignature(className.substring(className.lastIndexOf('/') + 1), 1,
+                    new MemberIndex());
+            int fields = u2();
+            for (int i = 0; i < fields; i++) {
+                access = u2();
+                String name = utf8(u2());
+                String type = utf8(u2());
+                String generic = attributes();
+                if ((access & ACC_SYNTHETIC) == 0) {
+                    signature.addField(name, new TypePrinter(generic == null ? type : generic).type());
+                }
+            }
+            int methods = u2();
+            for (int i = 0; i < methods; i++) {
+                access = u2();
+                String name = utf8(u2());
+                String descriptor = utf8(u2());
+                String generic = attributes();
+                if ((access & (ACC_SYNTHETIC | ACC_BRIDGE)) == 0 && name.charAt(0) != '<') {
+                    method(signature.getMethods(), name, generic == null ? descriptor : generic);
+                }
+            }
+            String generic = attributes();
+            if (generic != null) {
+                TypePrinter printer = new TypePrinter(generic);
+                for (String typeParameter : printer.typeParameters()) {
+                    signature.addTypeParameter(typeParameter);
+                }
+                if (superclass != 0 && !className(superclass).equals("java/lang/Object")) {
+                    signature.setSuperclass(printer.type());
+                }
+            } else if (superclass != 0 && !className(superclass).equals("java/lang/Object")) {
+                signature.setSuperclass(qualifiedName(className(superclass)));
+            }
+            return signature;
+        }
+
+        private void constantPool() throws ParseException {
+            int count = u2();
+            entries = new int[count];
+            for (int i = 1; i < count; i++) {
+                entries[i] = pos;
+                int tag = bytes[pos++];
+                switch (tag) {
+                case UTF8:
+                    int length = u2();
+                    pos += length;
+                    break;
+                case CLASS:
+                case 8: // string
+                case 16: // method type
+                case 19: // module
+                case 20: // package
+                    pos += 2;
+                    break;
+                case 15: // method handle
+                    pos += 3;
+                    break;
+                case 3: // integer
+                case 4: // float
+                case 9: // field
+                case 10: // method
+                case 11: // interface method
+                case 12: // name and type
+                case 17: // dynamic
+                case 18: // invoke dynamic
+                    pos += 4;
+                    break;
+                case 5: // long
+                case 6: // double
+                    pos += 8;
+                    i++;
+                    break;
+                default:
+                    throw new ParseException("Unknown constant pool tag "+tag, pos - 1);
+                }
+            }
+        }
+
+        /**
+         * Skips the attributes of a class, field or method, returns its generic signature if it has one
+         */
+        private String attributes() {
+            String signature = null;
+            int count = u2();
+            for (int i = 0; i < count; i++) {
+                String name = utf8(u2());
+                int length = u4();
+                if (name.equals("Signature")) {
+                    signature = utf8(u2());
+                    pos += length - 2;
+                } else {
+                    pos += length;
+                }
+            }
+            return signature;
+        }
+
+        private void method(MemberIndex index, String name, String signature) {
+            TypePrinter printer = new TypePrinter(signature);
+            printer.typeParameters();
+            List<String> params = new ArrayList<String>();
+            printer.expect('(');
+            while (!printer.next(')')) {
+                params.add(printer.type());
+            }
+            index.add(name, printer.type(), params.toArray(new String[params.size()]));
+        }
+
+        private String className(int index) {
+            return utf8(u2(entries[index] + 1));
+        }
+
+        /**
+         * Decodes the modified UTF-8 of a constant pool entry
+         */
+        private String utf8(int index) {
+            int offset = entries[index];
+            int length = u2(offset + 1);
+            int end = offset + 3 + length;
+            char[] chars = new char[length];
+            int n = 0;
+            for (int i = offset + 3; i < end; n++) {
+                int b = bytes[i++] & 0xff;
+                if (b < 0x80) {
+                    chars[n] = (char) b;
+                } else if (b < 0xe0) {
+                    chars[n] = (char) (((b & 0x1f) << 6) | (bytes[i++] & 0x3f));
+                } else {
+                    chars[n] = (char) (((b & 0x0f) << 12) | ((bytes[i++] & 0x3f) << 6) | (bytes[i++] & 0x3f));
+                }
+            }
+            return new String(chars, 0, n);
+        }
+
+        private int u2() {
+            int value = u2(pos);
+            pos += 2;
+            return value;
+        }
+
+        private int u2(int offset) {
+            return ((bytes[offset] & 0xff) << 8) | (bytes[offset + 1] & 0xff);
+        }
+
+        private int u4() {
+            int value = (u2(pos) << 16) | u2(pos + 2);
+            pos += 4;
+            return value;
+        }
+    }
+
+    /**
+     * Prints the types of a field descriptor, method descriptor or generic signature as Java source
+     */
+    private static class TypePrinter {
+        private final String signature;
+        private int pos;
+
+        TypePrinter(String signature) {
+            this.signature = signature;
+        }
+
+        /**
+         * Reads the type parameters of a generic class or method, returns their names. Their bounds are
+         * skipped, the type variables are referred to by name.
+         */
+        List<String> typeParameters() {
+            List<String> names = new ArrayList<String>();
+            if (!next('<')) {
+                return names;
+            }
+            while (!next('>')) {
+                int colon = signature.indexOf(':', pos);
+                names.add(signature.substring(pos, colon));
+                pos = colon;
+                while (next(':')) {
+                    // the class bound is empty if there are only interface bounds
+                    if (signature.charAt(pos) != ':') {
+                        type(new StringBuilder());
+                    }
+                }
+            }
+            return names;
+        }
+
+        void expect(char c) {
+            if (signature.charAt(pos++) != c) {
+                throw new IllegalArgumentException("Expected "+c+" at "+(pos - 1)+" of "+signature);
+            }
+        }
+
+        boolean next(char c) {
+            if (signature.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        String type() {
+            return type(new StringBuilder()).toString();
+        }
+
+        private StringBuilder type(StringBuilder buf) {
+            char c = signature.charAt(pos++);
+            switch (c) {
+            case 'B':
+                return buf.append("byte");
+            case 'C':
+                return buf.append("char");
+            case 'D':
+                return buf.append("double");
+            case 'F':
+                return buf.append("float");
+            case 'I':
+                return buf.append("int");
+            case 'J':
+                return buf.append("long");
+            case 'S':
+                return buf.append("short");
+            case 'Z':
+                return buf.append("boolean");
+            case 'V':
+                return buf.append("void");
+            case '[':
+                return type(buf).append("[]");
+            case 'T':
+                int end = signature.indexOf(';', pos);
+                buf.append(signature, pos, end);
+                pos = end + 1;
+                return buf;
+            case 'L':
+                return classType(buf);
+            default:
+                throw new IllegalArgumentException("Unexpected "+c+" at "+(pos - 1)+" of "+signature);
+            }
+        }
+
+        /**
+         * Prints a class type with its type arguments and those of its outer classes
+         */
+        private StringBuilder classType(StringBuilder buf) {
+            int start = pos;
+            while (";<.".indexOf(signature.charAt(pos)) < 0) {
+                pos++;
+            }
+            buf.append(qualifiedName(signature.substring(start, pos)));
+            while (true) {
+                char c = signature.charAt(pos++);
+                if (c == ';') {
+                    return buf;
+                }
+                if (c == '.') {
+                    buf.append('.');
+                    start = pos;
+                    while (";<.".indexOf(signature.charAt(pos)) < 0) {
+                        pos++;
+                    }
+                    buf.append(signature, start, pos);
+                    continue;
+                }
+                // type arguments
+                buf.append('<');
+                for (int i = 0; !next('>'); i++) {
+                    if (i > 0) {
+                        buf.append(", ");
+                    }
+                    typeArgument(buf);
+                }
+                buf.append('>');
+            }
+        }
+
+        private void typeArgument(StringBuilder buf) {
+            char c = signature.charAt(pos);
+            if (c == '*') {
+                pos++;
+                buf.append('?');
+            } else if (c == '+') {
+                pos++;
+                type(buf.append("? extends "));
+            } else if (c == '-') {
+                pos++;
+                type(buf.append("? super "));
+            } else {
+                type(buf);
+            }
+        }
+    }
+
+    /**
+     * The qualified name of a class from its internal name, ie "java.util.Map.Entry" for
+     * "java/util/Map$Entry"
+     */
+    private static String qualifiedName(String internalName) {
+        return internalName.replace('/', '.').replace('$', '.');
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package us.gibb.dev.vo_gen;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Selects the classes to generate from. A pattern with a dot is matched against the qualified name, ie
+ * "us.gibb.model.User" or "us.gibb.model.*", otherwise against the simple name, ie "User" or "*Entity".
+ * "*" matches within a name, "**" across packages and "?" a single character.
+ * <p>
+ * Source files are selected by their file name before they are read, the declared type is checked again
+ * once they are parsed.
+ */
+class ClassFilter {
+    private final List<Pattern> simple = new ArrayList<Pattern>();
+    private final List<Pattern> qualified = new ArrayList<Pattern>();
+
+    /**
+     * Package to the simple names of the qualified patterns without wildcards
+     */
+    private final Map<String, Set<String>> exact = new HashMap<String, Set<String>>();
+
+    private ClassFilter(String[] classes) {
+        for (String pattern : classes) {
+            pattern = pattern.trim();
+            int dot = pattern.lastIndexOf('.');
+            if (dot < 0) {
+                simple.add(compile(pattern));
+                continue;
+            }
+            qualified.add(compile(pattern));
+            if (pattern.indexOf('*') < 0 && pattern.indexOf('?') < 0) {
+                String packageName = pattern.substring(0, dot);
+                Set<String> names = exact.get(packageName);
+                if (names == null) {
+                    names = new HashSet<String>();
+                    exact.put(packageName, names);
+                }
+                names.add(pattern.substring(dot + 1));
+            }
+        }
+    }
+
+    /**
+     * The filter for the patterns, null if there are none and every class is selected
+     */
+    static ClassFilter of(String[] classes) {
+        if (classes == null || classes.length == 0) {
+            return null;
+        }
+        return new ClassFilter(classes);
+    }
+
+    boolean matches(String packageName, String name) {
+        for (Pattern pattern : simple) {
+            if (pattern.matcher(name).matches()) {
+                return true;
+            }
+        }
+        if (!qualified.isEmpty()) {
+            String qualifiedName = packageName.length() == 0 ? name : packageName+"."+name;
+            for (Pattern pattern : qualified) {
+                if (pattern.matcher(qualifiedName).matches()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The classes of the package named without wildcards, a source whose file name does not match is
+     * still read to look for these in case it declares a type with another name
+     */
+    Set<String> getExactNames(String packageName) {
+        Set<String> names = exact.get(packageName);
+        return names == null ? Collections.<String>emptySet() : names;
+    }
+
+    private static Pattern compile(String glob) {
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*') {
+                if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                    regex.append(".*");
+                    i++;
+                } else {
+                    regex.append("[^.]*");
+                }
+            } else if (c == '?') {
+                regex.append("[^.]");
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString());
+    }
+}
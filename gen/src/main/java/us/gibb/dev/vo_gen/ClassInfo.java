@@ -0,0 +1,138 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package us.gibb.dev.vo_gen;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The parts of a parsed class that are needed to generate its VO and converter methods
+ */
+public class ClassInfo {
+    private final String name;
+    private final String packageName;
+    private final List<FieldInfo> fields;
+    private final List<String> imports;
+
+    /**
+     * A class whose VO only imports Serializable
+     */
+    public ClassInfo(String name, String packageName, List<FieldInfo> fields) {
+        this(name, packageName, fields, Collections.singletonList("java.io.Serializable"));
+    }
+
+    /**
+     * @param imports the classes the VO imports, the types of the fields are printed accordingly
+     */
+    public ClassInfo(String name, String packageName, List<FieldInfo> fields, List<String> imports) {
+        this.name = name;
+        this.packageName = packageName;
+        this.fields = Collections.unmodifiableList(fields);
+        this.imports = Collections.unmodifiableList(imports);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getPackageName() {
+        return packageName;
+    }
+
+    public String getNewPackage() {
+        return newPackage(packageName);
+    }
+
+    public String getNewName() {
+        return newName(name);
+    }
+
+    static String newPackage(String packageName) {
+        return packageName+".vo";
+    }
+
+    static String newName(String name) {
+        return name+"VO";
+    }
+
+    public String getNewPackageDir() {
+        return getNewPackage().replace('.', '/');
+    }
+
+    public String getNewFileName() {
+        return getNewName()+".java";
+    }
+
+    /**
+     * Path of the generated VO relative to the output directory
+     */
+    public String getOutputPath() {
+        return getNewPackageDir()+"/"+getNewFileName();
+    }
+
+    public List<FieldInfo> getFields() {
+        return fields;
+    }
+
+    /**
+     * The classes the VO imports, sorted
+     */
+    public List<String> getImports() {
+        return imports;
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeUTF(name);
+        out.writeUTF(packageName);
+        out.writeInt(fields.size());
+        for (FieldInfo field : fields) {
+            field.writeTo(out);
+        }
+        out.writeInt(imports.size());
+        for (String imported : imports) {
+            out.writeUTF(imported);
+        }
+    }
+
+    static ClassInfo readFrom(DataInput in) throws IOException {
+        String name = in.readUTF();
+        String packageName = in.readUTF();
+        int count = in.readInt();
+        List<FieldInfo> fields = new ArrayList<FieldInfo>(count);
+        for (int i = 0; i < count; i++) {
+            fields.add(FieldInfo.readFrom(in));
+        }
+        count = in.readInt();
+        List<String> imports = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            imports.add(in.readUTF());
+        }
+        return new ClassInfo(name, packageName, fields, imports);
+    }
+
+    @Override
+    public String toString() {
+        return packageName+"."+name+fields;
+    }
+}
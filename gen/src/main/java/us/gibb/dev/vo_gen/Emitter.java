@@ -0,0 +1,41 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package us.gibb.dev.vo_gen;
+
+import java.util.Collection;
+
+/**
+ * Writes the source of the generated classes. Sources are emitted concurrently, so implementations must
+ * be thread safe.
+ * 
+ * @see Emitters
+ */
+public interface Emitter {
+
+    /**
+     * Appends the source of the VO of a class
+     */
+    void emitVO(ClassInfo info, StringBuilder out) throws Exception;
+
+    /**
+     * Appends the source of the converter between the classes of a package and their VOs
+     */
+    void emitConverter(String defaultPackage, Collection<ClassInfo> classes, StringBuilder out) throws Exception;
+}
@@ -0,0 +1,73 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package us.gibb.dev.vo_gen;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A field of a class that has both a getter and a setter
+ */
+public class FieldInfo {
+    private final String name;
+    private final String type;
+    private final String getter;
+    private final String setter;
+
+    public FieldInfo(String name, String type, String getter, String setter) {
+        this.name = name;
+        this.type = type;
+        this.getter = getter;
+        this.setter = setter;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getGetter() {
+        return getter;
+    }
+
+    public String getSetter() {
+        return setter;
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeUTF(name);
+        out.writeUTF(type);
+        out.writeUTF(getter);
+        out.writeUTF(setter);
+    }
+
+    static FieldInfo readFrom(DataInput in) throws IOException {
+        return new FieldInfo(in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF());
+    }
+
+    @Override
+    public String toString() {
+        return type+" "+name;
+    }
+}
@@ -0,0 +1,137 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package us.gibb.dev.vo_gen;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Writes the sources below an output directory, the default sink
+ */
+public class FileSystemSink implements OutputSink {
+    private final File outDir;
+    private final boolean writeIfChanged;
+    private final Log log;
+
+    public FileSystemSink(File outDir) {
+        this(outDir, false, new JavaUtilLog(FileSystemSink.class));
+    }
+
+    /**
+     * @param writeIfChanged only write sources whose content differs from the existing file and remove the
+     *        files that were not generated instead of cleaning the output directory, so unchanged files keep
+     *        their modification time
+     */
+    public FileSystemSink(File outDir, boolean writeIfChanged, Log log) {
+        this.outDir = outDir;
+        this.writeIfChanged = writeIfChanged;
+        this.log = log;
+    }
+
+    public File getOutDir() {
+        return outDir;
+    }
+
+    public void start(boolean incremental) throws IOException {
+        if (!writeIfChanged && !incremental && outDir.exists()) {
+            FileUtils.cleanDirectory(outDir);
+        }
+    }
+
+    public boolean exists(String path) {
+        return new File(outDir, path).exists();
+    }
+
+    public void write(String path, CharSequence content) throws IOException {
+        File out = new File(outDir, path);
+        FileUtils.forceMkdir(out.getParentFile());
+        if (writeIfChanged) {
+            byte[] bytes = content.toString().getBytes(ENCODING);
+            if (out.isFile() && out.length() == bytes.length
+                    && Manifest.hash(bytes).equals(Manifest.hash(FileUtils.readFileToByteArray(out)))) {
+                return;
+            }
+            FileUtils.writeByteArrayToFile(out, bytes);
+            return;
+        }
+        Writer writer = new OutputStreamWriter(new FileOutputStream(out), ENCODING);
+        try {
+            writer.append(content);
+        } finally {
+            writer.close();
+        }
+    }
+
+    public void remove(String path) {
+        File file = new File(outDir, path);
+        log.debug("removing {0}", file);
+        file.delete();
+    }
+
+    public void finish(Set<String> outputs) {
+        if (writeIfChanged) {
+            removeUnexpected(outDir, outputs);
+        }
+    }
+
+    /**
+     * The files written so far are complete
+     */
+    public void abort() {
+    }
+
+    /**
+     * Deletes every file below the directory that was not generated and prunes the emptied directories,
+     * returns true if the directory itself is empty afterwards
+     */
+    private boolean removeUnexpected(File dir, Set<String> outputs) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return false;
+        }
+        boolean empty = true;
+        for (File file : files) {
+            if (file.isDirectory()) {
+                if (removeUnexpected(file, outputs)) {
+                    file.delete();
+                } else {
+                    empty = false;
+                }
+            } else if (outputs.contains(relativePath(file))) {
+                empty = false;
+            } else {
+                log.debug("removing {0}", file);
+                file.delete();
+            }
+        }
+        return empty;
+    }
+
+    private String relativePath(File file) {
+        String path = file.getAbsolutePath().substring(outDir.getAbsolutePath().length() + 1);
+        return path.replace(File.separatorChar, '/');
+    }
+}
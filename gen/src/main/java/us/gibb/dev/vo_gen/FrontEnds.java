@@ -0,0 +1,49 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package us.gibb.dev.vo_gen;
+
+/**
+ * Creates the built in front ends
+ */
+public final class FrontEnds {
+    public static final String JAVAPARSER = "javaparser";
+    public static final String SCANNER = "scanner";
+
+    private FrontEnds() {
+    }
+
+    /**
+     * Creates the front end with the given name, either {@link #JAVAPARSER}, {@link #SCANNER} or the class
+     * name of a {@link FrontEnd} with a public no argument constructor
+     */
+    public static FrontEnd forName(String name) throws Exception {
+        if (name == null || JAVAPARSER.equals(name)) {
+            return new JavaParserFrontEnd();
+        }
+        if (SCANNER.equals(name)) {
+            return new SignatureScanner();
+        }
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        if (loader == null) {
+            loader = FrontEnds.class.getClassLoader();
+        }
+        return (FrontEnd) Class.forName(name, true, loader).newInstance();
+    }
+}
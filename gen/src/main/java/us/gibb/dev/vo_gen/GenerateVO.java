@@ -0,0 +1,15 @@
+package us.gibb.dev.vo_gen;
+
+import static java.lang.annotation.ElementType.*;
+import static java.lang.annotation.RetentionPolicy.*;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a class whose VO is generated by {@link VOProcessor} while it is compiled
+ */
+@Target(value={TYPE})
+@Retention(value=SOURCE)
+public @interface GenerateVO {
+
+}
@@ -0,0 +1,98 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package us.gibb.dev.vo_gen;
+
+import java.io.File;
+
+/**
+ * One source root of a batch generation: its packages, the package of their converter and the directory
+ * the VOs are written to. The other settings are taken from the generator running the batch.
+ * 
+ * @see VOGen#generate(java.util.List)
+ */
+public class GenerationGroup {
+    private File srcDir;
+    private String packages[];
+    private String defaultPackage;
+    private File outDir;
+    private File markerDirectory;
+
+    public GenerationGroup() {
+    }
+
+    public GenerationGroup(File srcDir, String[] packages, String defaultPackage, File outDir) {
+        this.srcDir = srcDir;
+        this.packages = packages;
+        this.defaultPackage = defaultPackage;
+        this.outDir = outDir;
+    }
+
+    public File getSrcDir() {
+        return srcDir;
+    }
+
+    public void setSrcDir(File srcDir) {
+        this.srcDir = srcDir;
+    }
+
+    public String[] getPackages() {
+        return packages;
+    }
+
+    public void setPackages(String[] packages) {
+        this.packages = packages;
+    }
+
+    public String getDefaultPackage() {
+        return defaultPackage;
+    }
+
+    public void setDefaultPackage(String defaultPackage) {
+        this.defaultPackage = defaultPackage;
+    }
+
+    public File getOutDir() {
+        return outDir;
+    }
+
+    /**
+     * Where the VOs of the group are written, every group needs its own as it is cleaned
+     */
+    public void setOutDir(File outDir) {
+        this.outDir = outDir;
+    }
+
+    public File getMarkerDirectory() {
+        return markerDirectory;
+    }
+
+    /**
+     * Where the manifest of the group is kept, by default a subdirectory of the generator's marker directory
+     * named after the position of the group
+     */
+    public void setMarkerDirectory(File markerDirectory) {
+        this.markerDirectory = markerDirectory;
+    }
+
+    @Override
+    public String toString() {
+        return srcDir+" -> "+outDir;
+    }
+}
@@ -0,0 +1,621 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package us.gibb.dev.vo_gen;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import us.gibb.dev.vo_gen.GenerationReport.Phase;
+import us.gibb.dev.vo_gen.GenerationReport.Probe;
+
+/**
+ * Runs a generation as a staged pipeline. A scanner thread walks the package directories and submits every
+ * file to the parse pool, a dispatcher thread hands the extracted class infos to the render pool and the
+ * calling thread writes the rendered sources to the sink. The converter is rendered once from the classes
+ * of every package after the last one was read. The pools may be shared by the pipelines of
+ * several generations running at once.
+ * <p>
+ * The stages are connected by bounded queues of futures which are consumed in scan order, so the output
+ * is the same as rendering the packages one after another.
+ * <p>
+ * Memory stays flat however large a package is: a syntax tree is dropped as soon as its class info is
+ * extracted, each VO is written as soon as it is rendered and only the pooled class infos are kept until
+ * the converter is rendered.
+ */
+class GenerationPipeline {
+
+    /**
+     * Marks the end of a queue
+     */
+    private static final Slot<?> DONE = new Slot<Object>(null, null);
+
+    private static final String CONVERTER_FILE_NAME = "VO.java";
+
+    private final VOGen gen;
+    private final GenerationRequest request;
+    private final int threads;
+    private final OutputSink sink;
+    private final Manifest previous;
+    private final Manifest current;
+    private final GenerationReport report;
+    private final StringPool strings;
+    private final ClassFilter classFilter;
+    private final FrontEnd frontEnd;
+    private final TypeIndex types;
+    private Set<String> changed;
+    private ClassCache cache;
+    /**
+     * Checksums of the templates of the emitter
+     */
+    private String voTemplate;
+    private String converterTemplate;
+    /**
+     * Set when the VO template changed since the previous generation, every VO is rendered again
+     */
+    private boolean renderAll;
+    private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+    private final Set<String> outputs = Collections.synchronizedSet(new HashSet<String>());
+
+    private BlockingQueue<Slot<Source>> parsed;
+    private BlockingQueue<Slot<Rendered>> rendered;
+    private final ExecutorService walkPool;
+    private final ExecutorService parsePool;
+    private final ExecutorService renderPool;
+
+    /**
+     * @param strings pools the class infos, shared by the generations of a batch
+     * @param types the classes and superclasses, shared by the generations of a batch. Null to index those
+     *        of this generation only.
+     * @param previous manifest of the previous generation, sources it recorded with the same content are
+     *        not parsed again
+     * @param current collects the manifest of this generation, null if none is kept
+     * @param report collects the time spent in every phase
+     */
+    GenerationPipeline(VOGen gen, GenerationRequest request, Pools pools, StringPool strings, TypeIndex types,
+            OutputSink sink, Manifest previous, Manifest current, GenerationReport report) {
+        this.gen = gen;
+        this.request = request;
+        this.threads = pools.threads;
+        this.walkPool = pools.walk;
+        this.parsePool = pools.parse;
+        this.renderPool = pools.render;
+        this.strings = strings;
+        this.sink = sink;
+        this.previous = previous;
+        this.current = current;
+        this.report = report;
+        this.classFilter = ClassFilter.of(request.getClasses());
+        this.frontEnd = request.isBytecode() ? new ClassFileFrontEnd() : request.getFrontEnd();
+        this.types = types != null ? types : types(request, frontEnd);
+        if (previous != null) {
+            this.types.addPrevious(previous.getTypes());
+        }
+    }
+
+    /**
+     * The index of the classes of a generation, superclasses are read from its source directory or its
+     * classes directory
+     */
+    static TypeIndex types(GenerationRequest request, FrontEnd frontEnd) {
+        // class files are read with qualified types
+        SymbolTable symbols = new SymbolTable(request.isBytecode() ? null : request.getSrcDir());
+        // superclasses in jars are not indexed
+        File root = request.isBytecode() ? request.getClassesDirectory() : request.getSrcDir();
+        String suffix = request.isBytecode() ? ClassFileFrontEnd.SUFFIX : SourceWalker.SUFFIX;
+        return new TypeIndex(symbols, frontEnd, root == null ? Collections.<File>emptyList() : Collections
+                .singletonList(root), suffix, request.getLog());
+    }
+
+    /**
+     * Sources that changed since the previous manifest was recorded, the others it recorded are not read
+     * again. Null if not known, then every source is read and compared with its recorded hash.
+     */
+    public void setChanged(Set<String> changed) {
+        this.changed = changed;
+    }
+
+    /**
+     * Cache the class infos of unchanged sources are taken from instead of parsing them, and the class
+     * infos of this run are put into. Null if none is kept.
+     */
+    public void setCache(ClassCache cache) {
+        this.cache = cache;
+        types.addCache(cache);
+    }
+
+    public void run(String[] packages) throws Exception {
+        checkTemplates();
+        int capacity = threads * 4;
+        parsed = new ArrayBlockingQueue<Slot<Source>>(capacity);
+        rendered = new ArrayBlockingQueue<Slot<Rendered>>(capacity);
+
+        List<FileSystem> jars = new ArrayList<FileSystem>();
+        Thread scanner = new StageThreadFactory("vo-gen-scan").newThread(new Scanner(walkers(jars), packages));
+        Thread dispatcher = new StageThreadFactory("vo-gen-dispatch").newThread(new Dispatcher());
+        try {
+            scanner.start();
+            dispatcher.start();
+            writeAll();
+            if (current != null) {
+                current.putTypes(types.getSuperclasses());
+            }
+        } finally {
+            scanner.interrupt();
+            dispatcher.interrupt();
+            for (FileSystem jar : jars) {
+                jar.close();
+            }
+        }
+    }
+
+    /**
+     * Reloads the templates that changed and compares them with the ones of the previous generation.
+     * Emitters without templates are recorded by class, so the outputs are rendered again if it changes.
+     */
+    private void checkTemplates() throws Exception {
+        Emitter emitter = request.getEmitter();
+        if (emitter instanceof TemplateEmitter) {
+            TemplateEmitter templates = (TemplateEmitter) emitter;
+            templates.reload();
+            voTemplate = templates.getVOTemplateChecksum();
+            converterTemplate = templates.getConverterTemplateChecksum();
+        } else {
+            voTemplate = emitter.getClass().getName();
+            converterTemplate = voTemplate;
+        }
+        if (current != null) {
+            current.setVOTemplate(voTemplate);
+        }
+        renderAll = previous != null && !voTemplate.equals(previous.getVOTemplate());
+        if (renderAll) {
+            request.getLog().info("The VO template changed, rendering all VOs");
+        }
+    }
+
+    /**
+     * Walks the sources of the source directory, or the class files of the classes directory and the jars
+     * 
+     * @param jars collects the opened jars, to be closed once the sources are read
+     */
+    private List<SourceWalker> walkers(List<FileSystem> jars) throws IOException {
+        List<SourceWalker> walkers = new ArrayList<SourceWalker>();
+        if (!request.isBytecode()) {
+            walkers.add(new SourceWalker(request.getSrcDir(), request.getIncludes(), request.getExcludes(),
+                    request.isRecursive()));
+            return walkers;
+        }
+        File classesDirectory = request.getClassesDirectory();
+        if (classesDirectory != null) {
+            walkers.add(new SourceWalker(classesDirectory, classesDirectory.toPath(), "",
+                    ClassFileFrontEnd.SUFFIX, request.getIncludes(), request.getExcludes(),
+                    request.isRecursive()));
+        }
+        if (request.getJars() != null) {
+            for (File jar : request.getJars()) {
+                FileSystem fs = FileSystems.newFileSystem(jar.toPath(), (ClassLoader) null);
+                jars.add(fs);
+                walkers.add(new SourceWalker(jar, fs.getPath("/"), jar.getName()+"!/", ClassFileFrontEnd.SUFFIX,
+                        request.getIncludes(), request.getExcludes(), request.isRecursive()));
+            }
+        }
+        return walkers;
+    }
+
+    /**
+     * The files generated by the run including the ones that did not need rendering, relative to the output
+     * directory
+     */
+    public Set<String> getOutputs() {
+        return outputs;
+    }
+
+    private void writeAll() throws Exception {
+        while (true) {
+            Slot<Rendered> slot = rendered.take();
+            if (slot == DONE) {
+                break;
+            }
+            Rendered out = get(slot.future);
+            Probe probe = report.start();
+            sink.write(out.path, out.content);
+            probe.stop(Phase.WRITE, slot.packageName);
+        }
+        Throwable t = failure.get();
+        if (t instanceof Exception) {
+            throw (Exception) t;
+        } else if (t != null) {
+            throw new GenerationException(t);
+        }
+    }
+
+    /**
+     * Records the first failure and ends the given queue so the next stage stops
+     */
+    private <T> void fail(Throwable t, BlockingQueue<Slot<T>> queue) {
+        failure.compareAndSet(null, t);
+        try {
+            queue.put(GenerationPipeline.<T>done());
+        } catch (InterruptedException e) {
+            // the writer gave up
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Slot<T> done() {
+        return (Slot<T>) DONE;
+    }
+
+    private static <T> T get(Future<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Walks the packages and submits their files to the parse pool as their directories are listed
+     */
+    private class Scanner implements Runnable {
+        private final List<SourceWalker> walkers;
+        private final String[] packages;
+
+        Scanner(List<SourceWalker> walkers, String[] packages) {
+            this.walkers = walkers;
+            this.packages = packages;
+        }
+
+        public void run() {
+            try {
+                for (SourceWalker walker : walkers) {
+                    walker.setClassFilter(classFilter);
+                    for (String packageName : roots()) {
+                        scan(walker, walker.walk(packageName, walkPool, report), true);
+                    }
+                }
+                parsed.put(GenerationPipeline.<Source>done());
+            } catch (InterruptedException e) {
+                // the writer gave up
+            } catch (Throwable t) {
+                fail(t, parsed);
+            }
+        }
+
+        /**
+         * Submits the files of the package, then of its subpackages
+         * 
+         * @param root whether the package was configured, a discovered package without sources is skipped
+         */
+        private void scan(SourceWalker walker, SourceWalker.Node node, boolean root) throws Exception {
+            SourceWalker.Listing listing = get(node.listing);
+            final String packageName = node.packageName;
+            if (root || !listing.files.isEmpty()) {
+                request.getLog().info("src: "+node.directory);
+                for (final Path file : listing.files) {
+                    String name = file.getFileName().toString();
+                    final String path = walker.path(packageName, name);
+                    final File source = new File(node.directory, name);
+                    Future<Source> future = parsePool.submit(new Callable<Source>() {
+                        public Source call() throws Exception {
+                            return read(packageName, path, source, file);
+                        }
+                    });
+                    parsed.put(new Slot<Source>(packageName, future));
+                }
+            }
+            for (SourceWalker.Node child : listing.children) {
+                scan(walker, child, false);
+            }
+        }
+
+        /**
+         * The configured packages, without the ones a recursive walk of another reaches
+         */
+        private List<String> roots() {
+            List<String> roots = new ArrayList<String>(Arrays.asList(packages));
+            if (request.isRecursive()) {
+                for (String packageName : packages) {
+                    for (Iterator<String> i = roots.iterator(); i.hasNext();) {
+                        if (i.next().startsWith(packageName+".")) {
+                            i.remove();
+                        }
+                    }
+                }
+            }
+            return roots;
+        }
+    }
+
+    /**
+     * Whether the VO of a class info recorded by the previous manifest still exists or is not needed
+     */
+    private boolean generated(ClassInfo info) {
+        return info == null || !selected(info) || sink.exists(info.getOutputPath());
+    }
+
+    private boolean selected(ClassInfo info) {
+        return classFilter == null || classFilter.matches(info.getPackageName(), info.getName());
+    }
+
+    /**
+     * Reads a source file and extracts its class info, unless it is not among the changed sources or the
+     * previous manifest recorded the same content, and its VO still exists. Otherwise the class info is
+     * taken from the cache if it has the same content. A recorded class info is only taken if the
+     * superclasses it inherits from did not change either.
+     * 
+     * @param file names the source in messages
+     * @param content where the source is read from, a file in a directory or a jar
+     */
+    private Source read(String packageName, String path, File file, Path content) throws Exception {
+        Probe probe = report.start();
+        if (changed != null && !changed.contains(path)) {
+            Manifest.Entry entry = previous == null ? null : previous.get(path);
+            if (entry != null && generated(entry.info) && types.isCurrent(entry.superclasses)) {
+                report.recordSource(path, false, probe.stop(Phase.PARSE, packageName));
+                return restored(path, entry.hash, entry.info, entry.superclasses, entry.type, false);
+            }
+        }
+        byte[] bytes = Files.readAllBytes(content);
+        String hash = null;
+        if (current != null || cache != null) {
+            hash = Manifest.hash(bytes);
+            Manifest.Entry entry = previous == null ? null : previous.get(path);
+            if (entry != null && entry.hash.equals(hash) && generated(entry.info)
+                    && types.isCurrent(entry.superclasses)) {
+                report.recordSource(path, false, probe.stop(Phase.PARSE, packageName));
+                return restored(path, hash, strings.intern(entry.info), entry.superclasses, entry.type, false);
+            }
+        }
+        if (cache != null) {
+            ClassCache.Entry cached = cache.get(path, hash);
+            if (cached != null && types.isCurrent(cached.superclasses)) {
+                probe.stop(Phase.PARSE, packageName);
+                report.recordCached();
+                return restored(path, hash, strings.intern(cached.info), cached.superclasses, cached.type,
+                        true);
+            }
+        }
+        TypeSignature type = frontEnd.read(file, bytes);
+        long nanos = probe.stop(Phase.PARSE, packageName);
+        ClassInfo info = strings.intern(gen.extract(packageName, file, type, request.getLog(), types, hash));
+        String superclasses = "";
+        TypeIndex.Type indexed = null;
+        if (info != null) {
+            String name = qualify(packageName, type.getName());
+            superclasses = types.dependencies(name);
+            indexed = types.get(name);
+        }
+        nanos += probe.stop(Phase.EXTRACT, packageName);
+        report.recordSource(path, true, nanos);
+        return new Source(path, hash, info, superclasses, indexed, true);
+    }
+
+    /**
+     * A source whose class info was recorded, its class is added to the index as it was recorded
+     */
+    private Source restored(String path, String hash, ClassInfo info, String superclasses, TypeIndex.Type type,
+            boolean changed) {
+        if (type != null) {
+            types.restore(type);
+        }
+        return new Source(path, hash, info, superclasses, type, changed);
+    }
+
+    private static String qualify(String packageName, String name) {
+        return packageName.length() == 0 ? name : packageName+"."+name;
+    }
+
+    /**
+     * Collects the class infos in scan order and submits the VO templates to the render pool, then the
+     * converter template once every package was read
+     */
+    private class Dispatcher implements Runnable {
+
+        public void run() {
+            try {
+                Map<String, ClassInfo> classes = new LinkedHashMap<String, ClassInfo>();
+                while (true) {
+                    Slot<Source> slot = parsed.take();
+                    if (slot == DONE) {
+                        break;
+                    }
+
+                    Source source = get(slot.future);
+                    if (current != null) {
+                        current.put(source.path, new Manifest.Entry(source.hash, source.info,
+                                source.superclasses, source.type));
+                    }
+                    if (cache != null) {
+                        cache.put(source.path, source.hash, source.info, source.superclasses, source.type);
+                    }
+                    final ClassInfo info = source.info;
+                    if (info == null || !selected(info)) {
+                        // the file name was selected but it declares another class
+                        continue;
+                    }
+                    classes.put(slot.packageName+"."+info.getName(), info);
+                    outputs.add(info.getOutputPath());
+                    if (source.changed || renderAll) {
+                        rendered.put(submit(slot.packageName, info.getOutputPath(), new Callable<String>() {
+                            public String call() throws Exception {
+                                return gen.renderVO(request.getEmitter(), info);
+                            }
+                        }));
+                    }
+                }
+                submitConverter(classes);
+                rendered.put(GenerationPipeline.<Rendered>done());
+            } catch (InterruptedException e) {
+                // the writer gave up
+            } catch (Throwable t) {
+                fail(t, rendered);
+            }
+        }
+
+        /**
+         * Renders the converter unless it was rendered from the same classes last time
+         */
+        private void submitConverter(final Map<String, ClassInfo> classes) throws Exception {
+            String packageName = request.getDefaultPackage();
+            String path = packageName.replace('.', '/')+"/"+CONVERTER_FILE_NAME;
+            outputs.add(path);
+            if (current != null) {
+                String digest = Manifest.digest(packageName, converterTemplate, classes.values());
+                current.setConverter(digest);
+                current.setConverterPath(path);
+                if (previous != null && digest.equals(previous.getConverter()) && sink.exists(path)) {
+                    return;
+                }
+            }
+            rendered.put(submit(packageName, path, new Callable<String>() {
+                public String call() throws Exception {
+                    return gen.renderConverter(request.getEmitter(), request.getDefaultPackage(),
+                            classes.values());
+                }
+            }));
+        }
+
+        private Slot<Rendered> submit(final String packageName, final String path,
+                final Callable<String> render) {
+            Future<Rendered> out = renderPool.submit(new Callable<Rendered>() {
+                public Rendered call() throws Exception {
+                    Probe probe = report.start();
+                    String content = render.call();
+                    probe.stop(Phase.RENDER, packageName);
+                    return new Rendered(path, content);
+                }
+            });
+            return new Slot<Rendered>(packageName, out);
+        }
+    }
+
+    /**
+     * A read source file, info is null if it does not declare a type
+     */
+    private static class Source {
+        final String path;
+        final String hash;
+        final ClassInfo info;
+        final String superclasses;
+        final TypeIndex.Type type;
+        final boolean changed;
+
+        Source(String path, String hash, ClassInfo info, String superclasses, TypeIndex.Type type,
+                boolean changed) {
+            this.path = path;
+            this.hash = hash;
+            this.info = info;
+            this.superclasses = superclasses;
+            this.type = type;
+            this.changed = changed;
+        }
+    }
+
+    /**
+     * An entry in a stage queue
+     */
+    private static class Slot<T> {
+        final String packageName;
+        final Future<T> future;
+
+        Slot(String packageName, Future<T> future) {
+            this.packageName = packageName;
+            this.future = future;
+        }
+    }
+
+    private static class Rendered {
+        final String path;
+        final String content;
+
+        Rendered(String path, String content) {
+            this.path = path;
+            this.content = content;
+        }
+    }
+
+    /**
+     * The pools of the walk, parse and render stages
+     */
+    static class Pools {
+        final int threads;
+        final ExecutorService walk;
+        final ExecutorService parse;
+        final ExecutorService render;
+
+        Pools(int threads) {
+            this.threads = threads;
+            walk = Executors.newFixedThreadPool(threads, new StageThreadFactory("vo-gen-walk"));
+            parse = Executors.newFixedThreadPool(threads, new StageThreadFactory("vo-gen-parse"));
+            render = Executors.newFixedThreadPool(threads, new StageThreadFactory("vo-gen-render"));
+        }
+
+        /**
+         * Stops the stages, the tasks of a failed generation may still be running
+         */
+        void shutdownNow() {
+            walk.shutdownNow();
+            parse.shutdownNow();
+            render.shutdownNow();
+        }
+    }
+
+    static class StageThreadFactory implements ThreadFactory {
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger();
+
+        StageThreadFactory(String name) {
+            this.name = name;
+        }
+
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, name+"-"+count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
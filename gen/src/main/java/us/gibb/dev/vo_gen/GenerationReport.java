@@ -0,0 +1,433 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package us.gibb.dev.vo_gen;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * What a generation did and what it cost: count, time and allocated bytes of each phase overall and per
+ * package, plus the source files that took longest to parse and extract.
+ * <p>
+ * Times of the parallel phases are the sum of the time spent by every thread, allocated bytes are only
+ * available on JVMs that measure per thread allocation and are -1 otherwise. Every thread records into its
+ * own accumulator, so the parse and render threads do not contend, the accumulators are merged when the
+ * report is read.
+ */
+public class GenerationReport {
+
+    public enum Phase {
+        SCAN, PARSE, EXTRACT, RENDER, WRITE
+    }
+
+    /**
+     * Measures the allocation of a thread, null if the JVM does not
+     */
+    private final com.sun.management.ThreadMXBean threads = allocationBean();
+    private final Queue<Accumulator> accumulators = new ConcurrentLinkedQueue<Accumulator>();
+    private final ThreadLocal<Accumulator> accumulator = new ThreadLocal<Accumulator>() {
+        @Override
+        protected Accumulator initialValue() {
+            Accumulator created = new Accumulator();
+            accumulators.add(created);
+            return created;
+        }
+    };
+    private final int slowestCount;
+    private long wallNanos;
+
+    /**
+     * @param slowestCount number of slowest source files to keep
+     */
+    public GenerationReport(int slowestCount) {
+        this.slowestCount = slowestCount;
+    }
+
+    /**
+     * Starts measuring the calling thread
+     */
+    Probe start() {
+        return new Probe();
+    }
+
+    void record(Phase phase, String packageName, long nanos, long allocated) {
+        accumulator.get().record(phase, packageName, nanos, allocated);
+    }
+
+    /**
+     * Records a read source, nanos is the time spent parsing and extracting it
+     */
+    void recordSource(String path, boolean changed, long nanos) {
+        accumulator.get().recordSource(path, changed, nanos);
+    }
+
+    /**
+     * Records a source whose class info was taken from the cache instead of parsing it
+     */
+    void recordCached() {
+        accumulator.get().recordCached();
+    }
+
+    void setWallNanos(long wallNanos) {
+        this.wallNanos = wallNanos;
+    }
+
+    public long getWallMillis() {
+        return wallNanos / 1000000;
+    }
+
+    /**
+     * Number of source files read
+     */
+    public int getSources() {
+        return merged().sources;
+    }
+
+    /**
+     * Number of source files that had not changed since the previous generation
+     */
+    public int getUnchanged() {
+        return merged().unchanged;
+    }
+
+    /**
+     * Number of source files whose class info was taken from the cache
+     */
+    public int getCached() {
+        return merged().cached;
+    }
+
+    public Stats getPhase(Phase phase) {
+        return merged().phases.get(phase);
+    }
+
+    /**
+     * The stats of a package by phase, phases the package did not go through are missing
+     */
+    public Map<Phase, Stats> getPackage(String packageName) {
+        Map<Phase, Stats> stats = merged().packages.get(packageName);
+        return stats == null ? new EnumMap<Phase, Stats>(Phase.class) : stats;
+    }
+
+    /**
+     * The slowest source files, slowest first
+     */
+    public List<SourceTime> getSlowest() {
+        return merged().getSlowest();
+    }
+
+    public String toJson() {
+        Accumulator merged = merged();
+        StringBuilder json = new StringBuilder(1024);
+        json.append("{\n  \"wallMillis\": ").append(getWallMillis());
+        json.append(",\n  \"sources\": ").append(merged.sources);
+        json.append(",\n  \"unchanged\": ").append(merged.unchanged);
+        json.append(",\n  \"cached\": ").append(merged.cached);
+        json.append(",\n  \"phases\": ");
+        appendPhases(json, merged.phases, "  ");
+        json.append(",\n  \"packages\": {");
+        boolean first = true;
+        for (Map.Entry<String, Map<Phase, Stats>> entry : merged.packages.entrySet()) {
+            json.append(first ? "\n    " : ",\n    ");
+            appendString(json, entry.getKey()).append(": ");
+            appendPhases(json, entry.getValue(), "    ");
+            first = false;
+        }
+        json.append("\n  },\n  \"slowest\": [");
+        first = true;
+        for (SourceTime source : merged.getSlowest()) {
+            json.append(first ? "\n    " : ",\n    ");
+            json.append("{\"source\": ");
+            appendString(json, source.getPath()).append(", \"millis\": ").append(source.getMillis()).append('}');
+            first = false;
+        }
+        json.append("\n  ]\n}\n");
+        return json.toString();
+    }
+
+    /**
+     * The accumulators of every thread added up
+     */
+    private Accumulator merged() {
+        Accumulator merged = new Accumulator();
+        for (Phase phase : Phase.values()) {
+            merged.phases.put(phase, new Stats());
+        }
+        for (Accumulator threadAccumulator : accumulators) {
+            threadAccumulator.addTo(merged);
+        }
+        return merged;
+    }
+
+    private static void appendPhases(StringBuilder json, Map<Phase, Stats> phases, String indent) {
+        json.append('{');
+        boolean first = true;
+        for (Map.Entry<Phase, Stats> entry : phases.entrySet()) {
+            Stats stats = entry.getValue();
+            json.append(first ? "\n  " : ",\n  ").append(indent);
+            json.append('"').append(entry.getKey().name().toLowerCase()).append("\": {\"count\": ")
+                    .append(stats.getCount()).append(", \"millis\": ").append(stats.getMillis())
+                    .append(", \"allocatedBytes\": ").append(stats.getAllocatedBytes()).append('}');
+            first = false;
+        }
+        json.append('\n').append(indent).append('}');
+    }
+
+    private static StringBuilder appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < ' ') {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"');
+    }
+
+    @Override
+    public String toString() {
+        Accumulator merged = merged();
+        StringBuilder buf = new StringBuilder();
+        buf.append(merged.sources).append(" sources (").append(merged.unchanged).append(" unchanged, ")
+                .append(merged.cached).append(" cached) in ")
+                .append(getWallMillis()).append("ms");
+        for (Map.Entry<Phase, Stats> entry : merged.phases.entrySet()) {
+            buf.append(", ").append(entry.getKey().name().toLowerCase()).append(' ').append(entry.getValue());
+        }
+        return buf.toString();
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        try {
+            java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+                if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+                    return threads;
+                }
+            }
+        } catch (LinkageError e) {
+            // not a JVM of Oracle or OpenJDK
+        }
+        return null;
+    }
+
+    /**
+     * Bytes allocated so far by the calling thread, -1 if not supported
+     */
+    private long allocatedBytes() {
+        return threads == null ? -1 : threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * What one thread recorded. It is only locked by its thread and while merging, so the lock is not
+     * contended.
+     */
+    private class Accumulator {
+        private final Map<Phase, Stats> phases = new EnumMap<Phase, Stats>(Phase.class);
+        private final Map<String, Map<Phase, Stats>> packages = new TreeMap<String, Map<Phase, Stats>>();
+        private final PriorityQueue<SourceTime> slowest = new PriorityQueue<SourceTime>();
+        private int sources;
+        private int unchanged;
+        private int cached;
+
+        synchronized void record(Phase phase, String packageName, long nanos, long allocated) {
+            stats(phases, phase).add(nanos, allocated);
+            Map<Phase, Stats> stats = packages.get(packageName);
+            if (stats == null) {
+                stats = new EnumMap<Phase, Stats>(Phase.class);
+                packages.put(packageName, stats);
+            }
+            stats(stats, phase).add(nanos, allocated);
+        }
+
+        synchronized void recordSource(String path, boolean changed, long nanos) {
+            sources++;
+            if (!changed) {
+                unchanged++;
+                return;
+            }
+            addSlowest(new SourceTime(path, nanos));
+        }
+
+        synchronized void recordCached() {
+            sources++;
+            cached++;
+        }
+
+        private void addSlowest(SourceTime source) {
+            if (slowestCount <= 0) {
+                return;
+            }
+            if (slowest.size() < slowestCount) {
+                slowest.add(source);
+            } else if (slowest.peek().compareTo(source) < 0) {
+                slowest.poll();
+                slowest.add(source);
+            }
+        }
+
+        /**
+         * Adds what the thread recorded so far to the merged accumulator
+         */
+        synchronized void addTo(Accumulator merged) {
+            merged.sources += sources;
+            merged.unchanged += unchanged;
+            merged.cached += cached;
+            for (Map.Entry<Phase, Stats> entry : phases.entrySet()) {
+                stats(merged.phases, entry.getKey()).add(entry.getValue());
+            }
+            for (Map.Entry<String, Map<Phase, Stats>> entry : packages.entrySet()) {
+                Map<Phase, Stats> stats = merged.packages.get(entry.getKey());
+                if (stats == null) {
+                    stats = new EnumMap<Phase, Stats>(Phase.class);
+                    merged.packages.put(entry.getKey(), stats);
+                }
+                for (Map.Entry<Phase, Stats> phase : entry.getValue().entrySet()) {
+                    stats(stats, phase.getKey()).add(phase.getValue());
+                }
+            }
+            for (SourceTime source : slowest) {
+                merged.addSlowest(source);
+            }
+        }
+
+        List<SourceTime> getSlowest() {
+            List<SourceTime> list = new ArrayList<SourceTime>(slowest);
+            Collections.sort(list, Collections.reverseOrder());
+            return list;
+        }
+    }
+
+    private static Stats stats(Map<Phase, Stats> stats, Phase phase) {
+        Stats phaseStats = stats.get(phase);
+        if (phaseStats == null) {
+            phaseStats = new Stats();
+            stats.put(phase, phaseStats);
+        }
+        return phaseStats;
+    }
+
+    /**
+     * Measures consecutive phases on one thread, each {@link #stop} records the time and allocation since
+     * the previous one
+     */
+    class Probe {
+        private long nanos = System.nanoTime();
+        private long allocated = allocatedBytes();
+
+        /**
+         * Records the phase and returns its time in nanoseconds
+         */
+        long stop(Phase phase, String packageName) {
+            long now = System.nanoTime();
+            long allocatedNow = allocatedBytes();
+            long elapsed = now - nanos;
+            record(phase, packageName, elapsed, allocated < 0 || allocatedNow < 0 ? -1 : allocatedNow - allocated);
+            nanos = now;
+            allocated = allocatedNow;
+            return elapsed;
+        }
+    }
+
+    public static class Stats {
+        private int count;
+        private long nanos;
+        private long allocatedBytes;
+
+        void add(long nanos, long allocated) {
+            count++;
+            this.nanos += nanos;
+            if (allocated < 0 || allocatedBytes < 0) {
+                allocatedBytes = -1;
+            } else {
+                allocatedBytes += allocated;
+            }
+        }
+
+        void add(Stats stats) {
+            count += stats.count;
+            nanos += stats.nanos;
+            if (stats.allocatedBytes < 0 || allocatedBytes < 0) {
+                allocatedBytes = -1;
+            } else {
+                allocatedBytes += stats.allocatedBytes;
+            }
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public long getMillis() {
+            return nanos / 1000000;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * -1 if not measured
+         */
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        @Override
+        public String toString() {
+            return count+"x "+getMillis()+"ms"+(allocatedBytes < 0 ? "" : " "+allocatedBytes / 1024+"KB");
+        }
+    }
+
+    public static class SourceTime implements Comparable<SourceTime> {
+        private final String path;
+        private final long nanos;
+
+        SourceTime(String path, long nanos) {
+            this.path = path;
+            this.nanos = nanos;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public long getMillis() {
+            return nanos / 1000000;
+        }
+
+        public int compareTo(SourceTime o) {
+            return nanos < o.nanos ? -1 : nanos == o.nanos ? path.compareTo(o.path) : 1;
+        }
+    }
+}
@@ -0,0 +1,306 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package us.gibb.dev.vo_gen;
+
+import java.io.File;
+
+/**
+ * Everything one generation needs, fixed once it is built so a single {@link VOGen} can run requests of
+ * different builds at the same time. Arrays are copied in and out.
+ * 
+ * @see VOGen#generate(GenerationRequest, OutputSink)
+ */
+public final class GenerationRequest {
+    private final File srcDir;
+    private final String packages[];
+    private final String classes[];
+    private final boolean recursive;
+    private final String includes[];
+    private final String excludes[];
+    private final File classesDirectory;
+    private final File jars[];
+    private final String defaultPackage;
+    private final File outDir;
+    private final String testOption;
+    private final int threads;
+    private final File markerDirectory;
+    private final File cacheDirectory;
+    private final boolean writeIfChanged;
+    private final Emitter emitter;
+    private final FrontEnd frontEnd;
+    private final Log log;
+
+    private GenerationRequest(Builder builder) {
+        srcDir = builder.srcDir;
+        packages = copy(builder.packages);
+        classes = copy(builder.classes);
+        recursive = builder.recursive;
+        includes = copy(builder.includes);
+        excludes = copy(builder.excludes);
+        classesDirectory = builder.classesDirectory;
+        jars = builder.jars == null ? null : builder.jars.clone();
+        defaultPackage = builder.defaultPackage;
+        outDir = builder.outDir;
+        testOption = builder.testOption;
+        threads = builder.threads;
+        markerDirectory = builder.markerDirectory;
+        cacheDirectory = builder.cacheDirectory;
+        writeIfChanged = builder.writeIfChanged;
+        emitter = builder.emitter;
+        frontEnd = builder.frontEnd;
+        log = builder.log;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * A builder starting from the settings of this request
+     */
+    public Builder toBuilder() {
+        return new Builder().srcDir(srcDir).packages(packages).classes(classes).recursive(recursive).includes(
+                includes).excludes(excludes).classesDirectory(classesDirectory).jars(jars).defaultPackage(
+                defaultPackage).outDir(outDir).testOption(testOption).threads(threads).markerDirectory(
+                markerDirectory).cacheDirectory(cacheDirectory).writeIfChanged(writeIfChanged).emitter(emitter)
+                .frontEnd(frontEnd).log(log);
+    }
+
+    public File getSrcDir() {
+        return srcDir;
+    }
+
+    public String[] getPackages() {
+        return copy(packages);
+    }
+
+    public String[] getClasses() {
+        return copy(classes);
+    }
+
+    public boolean isRecursive() {
+        return recursive;
+    }
+
+    public String[] getIncludes() {
+        return copy(includes);
+    }
+
+    public String[] getExcludes() {
+        return copy(excludes);
+    }
+
+    public File getClassesDirectory() {
+        return classesDirectory;
+    }
+
+    public File[] getJars() {
+        return jars == null ? null : jars.clone();
+    }
+
+    /**
+     * Whether the classes are read from class files rather than sources
+     */
+    public boolean isBytecode() {
+        return classesDirectory != null || (jars != null && jars.length > 0);
+    }
+
+    public String getDefaultPackage() {
+        return defaultPackage;
+    }
+
+    public File getOutDir() {
+        return outDir;
+    }
+
+    public String getTestOption() {
+        return testOption;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Number of threads of each stage, the number of available processors unless set
+     */
+    int getPoolSize() {
+        return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    public File getMarkerDirectory() {
+        return markerDirectory;
+    }
+
+    public File getCacheDirectory() {
+        return cacheDirectory;
+    }
+
+    public boolean isWriteIfChanged() {
+        return writeIfChanged;
+    }
+
+    /**
+     * The emitter of the request, the shared Velocity engine is initialized on the first call if none was set
+     */
+    public Emitter getEmitter() {
+        return emitter != null ? emitter : VelocityEmitter.shared();
+    }
+
+    public FrontEnd getFrontEnd() {
+        return frontEnd;
+    }
+
+    public Log getLog() {
+        return log;
+    }
+
+    private static String[] copy(String[] values) {
+        return values == null ? null : values.clone();
+    }
+
+    /**
+     * Collects the settings of a request, see the setters of {@link VOGen} for their meaning. The emitter,
+     * front end and log default to the shared Velocity engine, JavaParser and java.util.logging.
+     */
+    public static class Builder {
+        private File srcDir;
+        private String packages[];
+        private String classes[];
+        private boolean recursive;
+        private String includes[];
+        private String excludes[];
+        private File classesDirectory;
+        private File jars[];
+        private String defaultPackage;
+        private File outDir;
+        private String testOption;
+        private int threads;
+        private File markerDirectory;
+        private File cacheDirectory;
+        private boolean writeIfChanged;
+        private Emitter emitter;
+        private FrontEnd frontEnd;
+        private Log log;
+
+        Builder() {
+        }
+
+        public Builder srcDir(File srcDir) {
+            this.srcDir = srcDir;
+            return this;
+        }
+
+        public Builder packages(String... packages) {
+            this.packages = packages;
+            return this;
+        }
+
+        public Builder classes(String... classes) {
+            this.classes = classes;
+            return this;
+        }
+
+        public Builder recursive(boolean recursive) {
+            this.recursive = recursive;
+            return this;
+        }
+
+        public Builder includes(String... includes) {
+            this.includes = includes;
+            return this;
+        }
+
+        public Builder excludes(String... excludes) {
+            this.excludes = excludes;
+            return this;
+        }
+
+        public Builder classesDirectory(File classesDirectory) {
+            this.classesDirectory = classesDirectory;
+            return this;
+        }
+
+        public Builder jars(File... jars) {
+            this.jars = jars;
+            return this;
+        }
+
+        public Builder defaultPackage(String defaultPackage) {
+            this.defaultPackage = defaultPackage;
+            return this;
+        }
+
+        public Builder outDir(File outDir) {
+            this.outDir = outDir;
+            return this;
+        }
+
+        public Builder testOption(String testOption) {
+            this.testOption = testOption;
+            return this;
+        }
+
+        public Builder threads(int threads) {
+            this.threads = threads;
+            return this;
+        }
+
+        public Builder markerDirectory(File markerDirectory) {
+            this.markerDirectory = markerDirectory;
+            return this;
+        }
+
+        public Builder cacheDirectory(File cacheDirectory) {
+            this.cacheDirectory = cacheDirectory;
+            return this;
+        }
+
+        public Builder writeIfChanged(boolean writeIfChanged) {
+            this.writeIfChanged = writeIfChanged;
+            return this;
+        }
+
+        public Builder emitter(Emitter emitter) {
+            this.emitter = emitter;
+            return this;
+        }
+
+        public Builder frontEnd(FrontEnd frontEnd) {
+            this.frontEnd = frontEnd;
+            return this;
+        }
+
+        public Builder log(Log log) {
+            this.log = log;
+            return this;
+        }
+
+        public GenerationRequest build() {
+            if (frontEnd == null) {
+                frontEnd = new JavaParserFrontEnd();
+            }
+            if (log == null) {
+                log = new JavaUtilLog(VOGen.class);
+            }
+            return new GenerationRequest(this);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package us.gibb.dev.vo_gen;
+
+import java.util.Collection;
+
+/**
+ * Emits the same sources as templates/VO.vm and templates/VOs.vm by appending them directly, without a
+ * template engine. Keep the two in sync, TestEmitters compares their output.
+ */
+public class JavaEmitter implements Emitter {
+
+    public void emitVO(ClassInfo info, StringBuilder out) {
+        String newName = info.getNewName();
+        out.append("\npackage ").append(info.getNewPackage()).append(";\n\n");
+        for (String imported : info.getImports()) {
+            out.append("import ").append(imported).append(";\n");
+        }
+        out.append("\npublic class ").append(newName).append(" implements Serializable{\n\n");
+        for (FieldInfo field : info.getFields()) {
+            out.append("    private ").append(field.getType()).append(' ').append(field.getName()).append(";\n");
+        }
+        out.append("\n    public ").append(newName).append("() {}\n\n");
+        for (FieldInfo field : info.getFields()) {
+            String name = field.getName();
+            out.append("    public ").append(field.getType()).append(' ').append(field.getGetter()).append("() {\n");
+            out.append("        return this.").append(name).append(";\n");
+            out.append("    }\n\n");
+            out.append("    public void ").append(field.getSetter()).append('(').append(field.getType()).append(' ')
+                    .append(name).append(") {\n");
+            out.append("        this.").append(name).append(" = ").append(name).append(";\n");
+            out.append("    }\n");
+        }
+        out.append("}\n");
+    }
+
+    public void emitConverter(String defaultPackage, Collection<ClassInfo> classes, StringBuilder out) {
+        out.append("\npackage ").append(defaultPackage).append(";\n\n");
+        for (ClassInfo info : classes) {
+            out.append("import ").append(info.getPackageName()).append('.').append(info.getName()).append(";\n");
+            out.append("import ").append(info.getNewPackage()).append('.').append(info.getNewName()).append(";\n");
+        }
+        out.append("\npublic class VO {\n\n");
+        for (ClassInfo info : classes) {
+            String name = info.getName();
+            String newName = info.getNewName();
+            out.append("    public static ").append(name).append(" fromVO(").append(newName).append(" vo) {\n");
+            out.append("        ").append(name).append(" o = new ").append(name).append("();\n");
+            for (FieldInfo field : info.getFields()) {
+                out.append("        o.").append(field.getSetter()).append("(vo.").append(field.getGetter()).append("());\n");
+            }
+            out.append("        return o;\n");
+            out.append("    }\n\n");
+            out.append("    public static ").append(newName).append(" toVO(").append(name).append(" o) {\n");
+            out.append("        ").append(newName).append(" vo = new ").append(newName).append("();\n");
+            for (FieldInfo field : info.getFields()) {
+                out.append("        vo.").append(field.getSetter()).append("(o.").append(field.getGetter()).append("());\n");
+            }
+            out.append("        return vo;\n");
+            out.append("    }\n");
+        }
+        out.append("}\n");
+    }
+}
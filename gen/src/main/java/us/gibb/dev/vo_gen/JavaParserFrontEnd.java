@@ -0,0 +1,92 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package us.gibb.dev.vo_gen;
+
+import japa.parser.JavaParser;
+import japa.parser.ast.CompilationUnit;
+import japa.parser.ast.ImportDeclaration;
+import japa.parser.ast.TypeParameter;
+import japa.parser.ast.body.BodyDeclaration;
+import japa.parser.ast.body.ClassOrInterfaceDeclaration;
+import japa.parser.ast.body.FieldDeclaration;
+import japa.parser.ast.body.TypeDeclaration;
+import japa.parser.ast.body.VariableDeclarator;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+
+/**
+ * Parses the complete syntax tree of a source with JavaParser. Thread safe, the cached parser of JavaParser
+ * is disabled once this class is loaded.
+ */
+public class JavaParserFrontEnd implements FrontEnd {
+
+    static {
+        // the cached parser is a single static instance, files are parsed concurrently
+        JavaParser.setCacheParser(false);
+    }
+
+    public TypeSignature read(File file, byte[] content) throws Exception {
+        return signature(JavaParser.parse(new ByteArrayInputStream(content), OutputSink.ENCODING));
+    }
+
+    /**
+     * The signature of the first type of a parsed source, null if it declares none
+     */
+    public static TypeSignature signature(CompilationUnit cu) {
+        if (cu.getTypes() == null || cu.getTypes().isEmpty()) {
+            return null;
+        }
+        TypeDeclaration type = cu.getTypes().get(0);
+        TypeSignature signature = new TypeSignature(type.getName(), cu.getTypes().size(), MemberIndex.of(type));
+        if (type instanceof ClassOrInterfaceDeclaration) {
+            ClassOrInterfaceDeclaration declaration = (ClassOrInterfaceDeclaration) type;
+            if (declaration.getTypeParameters() != null) {
+                for (TypeParameter parameter : declaration.getTypeParameters()) {
+                    signature.addTypeParameter(parameter.getName());
+                }
+            }
+            if (!declaration.isInterface() && declaration.getExtends() != null
+                    && !declaration.getExtends().isEmpty()) {
+                signature.setSuperclass(declaration.getExtends().get(0).toString());
+            }
+        }
+        if (cu.getImports() != null) {
+            for (ImportDeclaration imported : cu.getImports()) {
+                if (!imported.isStatic()) {
+                    signature.addImport(imported.getName()+(imported.isAsterisk() ? ".*" : ""));
+                }
+            }
+        }
+        if (type.getMembers() == null) {
+            return signature;
+        }
+        for (BodyDeclaration member : type.getMembers()) {
+            if (member instanceof FieldDeclaration) {
+                FieldDeclaration fieldDecl = (FieldDeclaration) member;
+                String fieldType = fieldDecl.getType().toString();
+                for (VariableDeclarator var : fieldDecl.getVariables()) {
+                    signature.addField(var.getId().getName(), fieldType);
+                }
+            }
+        }
+        return signature;
+    }
+}
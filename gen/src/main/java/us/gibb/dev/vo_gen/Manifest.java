@@ -0,0 +1,301 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package us.gibb.dev.vo_gen;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+
+/**
+ * Records what the previous generation read and wrote: the content hash, class info, superclasses and
+ * outputs of every source file, the indexed superclasses, the checksum of the VO template, the path of
+ * the converter and a digest of the classes and template it was rendered from. Kept in the marker directory
+ * so the next generation only parses and renders what changed.
+ * <p>
+ * The sources of the indexed superclasses are also listed on their own in {@link #SUPERCLASSES_FILE_NAME},
+ * which is all {@link UpToDateCheck} reads.
+ */
+class Manifest {
+    static final String FILE_NAME = "vo-gen.manifest";
+    static final String SUPERCLASSES_FILE_NAME = "vo-gen.superclasses";
+
+    /**
+     * Bump when the manifest format or the generated output changes
+     */
+    private static final int VERSION = 10;
+
+    private final Map<String, Entry> sources = new LinkedHashMap<String, Entry>();
+    private final Map<String, TypeIndex.Type> types = new HashMap<String, TypeIndex.Type>();
+    private String voTemplate = "";
+    private String converter = "";
+    private String converterPath = "";
+
+    /**
+     * Loads the manifest from the directory, returns null if there is none or it was written by another
+     * version
+     */
+    static Manifest load(File dir, Log log) {
+        File file = new File(dir, FILE_NAME);
+        if (!file.isFile()) {
+            return null;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != VERSION) {
+                return null;
+            }
+            Manifest manifest = new Manifest();
+            manifest.voTemplate = in.readUTF();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String source = in.readUTF();
+                String hash = in.readUTF();
+                ClassInfo info = in.readBoolean() ? ClassInfo.readFrom(in) : null;
+                String superclasses = in.readUTF();
+                TypeIndex.Type type = in.readBoolean() ? TypeIndex.Type.readFrom(in) : null;
+                manifest.sources.put(source, new Entry(hash, info, superclasses, type));
+            }
+            manifest.converter = in.readUTF();
+            manifest.converterPath = in.readUTF();
+            count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                TypeIndex.Type type = TypeIndex.Type.readFrom(in);
+                manifest.types.put(type.getName(), type);
+            }
+            return manifest;
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable manifest {0}", file.getAbsolutePath());
+            return null;
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    void save(File dir) throws IOException {
+        FileUtils.forceMkdir(dir);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(new File(dir,
+                FILE_NAME))));
+        try {
+            out.writeInt(VERSION);
+            out.writeUTF(voTemplate);
+            out.writeInt(sources.size());
+            for (Map.Entry<String, Entry> source : sources.entrySet()) {
+                out.writeUTF(source.getKey());
+                out.writeUTF(source.getValue().hash);
+                ClassInfo info = source.getValue().info;
+                out.writeBoolean(info != null);
+                if (info != null) {
+                    info.writeTo(out);
+                }
+                out.writeUTF(source.getValue().superclasses);
+                TypeIndex.Type type = source.getValue().type;
+                out.writeBoolean(type != null);
+                if (type != null) {
+                    type.writeTo(out);
+                }
+            }
+            out.writeUTF(converter);
+            out.writeUTF(converterPath);
+            out.writeInt(types.size());
+            for (TypeIndex.Type type : types.values()) {
+                type.writeTo(out);
+            }
+        } finally {
+            out.close();
+        }
+        Writer superclasses = new OutputStreamWriter(new FileOutputStream(new File(dir,
+                SUPERCLASSES_FILE_NAME)), OutputSink.ENCODING);
+        try {
+            for (String source : getSuperclassSources()) {
+                superclasses.write(source);
+                superclasses.write('\n');
+            }
+        } finally {
+            superclasses.close();
+        }
+    }
+
+    /**
+     * The source files of the indexed superclasses, those read from class files have none
+     */
+    Set<String> getSuperclassSources() {
+        Set<String> sources = new TreeSet<String>();
+        for (TypeIndex.Type type : types.values()) {
+            if (type.getSource().length() > 0) {
+                sources.add(type.getSource());
+            }
+        }
+        return sources;
+    }
+
+    Entry get(String source) {
+        return sources.get(source);
+    }
+
+    void put(String source, Entry entry) {
+        sources.put(source, entry);
+    }
+
+    /**
+     * Checksum of the template the VOs were rendered with
+     */
+    String getVOTemplate() {
+        return voTemplate;
+    }
+
+    void setVOTemplate(String voTemplate) {
+        this.voTemplate = voTemplate;
+    }
+
+    /**
+     * Digest of the classes and template the converter was rendered from
+     */
+    String getConverter() {
+        return converter;
+    }
+
+    void setConverter(String digest) {
+        this.converter = digest;
+    }
+
+    /**
+     * The converter, relative to the output directory
+     */
+    String getConverterPath() {
+        return converterPath;
+    }
+
+    void setConverterPath(String converterPath) {
+        this.converterPath = converterPath;
+    }
+
+    /**
+     * The superclasses the classes inherited from by name, with the properties they declare
+     */
+    Map<String, TypeIndex.Type> getTypes() {
+        return types;
+    }
+
+    void putTypes(Collection<TypeIndex.Type> superclasses) {
+        for (TypeIndex.Type type : superclasses) {
+            types.put(type.getName(), type);
+        }
+    }
+
+    /**
+     * The VOs generated from all sources and the converter, relative to the output directory
+     */
+    List<String> getOutputs() {
+        List<String> outputs = new ArrayList<String>();
+        for (Entry entry : sources.values()) {
+            if (entry.info != null) {
+                outputs.add(entry.info.getOutputPath());
+            }
+        }
+        if (converterPath.length() > 0) {
+            outputs.add(converterPath);
+        }
+        return outputs;
+    }
+
+    static String hash(byte[] content) {
+        return hex(md5().digest(content));
+    }
+
+    private static String hex(byte[] digest) {
+        StringBuilder buf = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            buf.append(Character.forDigit((b >> 4) & 0xf, 16));
+            buf.append(Character.forDigit(b & 0xf, 16));
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Digest of everything a converter is rendered from
+     */
+    static String digest(String defaultPackage, String template, Collection<ClassInfo> classes)
+            throws IOException {
+        MessageDigest md5 = md5();
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new DigestOutputStream(
+                new NullOutputStream(), md5)));
+        out.writeUTF(defaultPackage);
+        out.writeUTF(template);
+        for (ClassInfo info : classes) {
+            info.writeTo(out);
+        }
+        out.close();
+        return hex(md5.digest());
+    }
+
+    private static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * What was generated from one source file, info and type are null if it does not declare a type
+     */
+    static class Entry {
+        final String hash;
+        final ClassInfo info;
+        /**
+         * The superclasses the info inherits from, see {@link TypeIndex#dependencies}
+         */
+        final String superclasses;
+        /**
+         * The class as it was indexed, added to the index again when the info is taken over
+         */
+        final TypeIndex.Type type;
+
+        Entry(String hash, ClassInfo info, String superclasses, TypeIndex.Type type) {
+            this.hash = hash;
+            this.info = info;
+            this.superclasses = superclasses;
+            this.type = type;
+        }
+    }
+}
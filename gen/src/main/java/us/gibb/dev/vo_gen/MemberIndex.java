@@ -0,0 +1,128 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package us.gibb.dev.vo_gen;
+
+import japa.parser.ast.body.BodyDeclaration;
+import japa.parser.ast.body.MethodDeclaration;
+import japa.parser.ast.body.Parameter;
+import japa.parser.ast.body.TypeDeclaration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The methods declared by a type, indexed by name so accessors can be looked up without walking the
+ * members again
+ */
+public class MemberIndex {
+
+    /**
+     * The methods by name with their types as declared, so accessors are matched without building a
+     * signature
+     */
+    private final Map<String, List<Method>> byName = new HashMap<String, List<Method>>();
+    private int size;
+
+    /**
+     * Indexes the methods declared directly by the type, members of nested types are not included
+     */
+    public static MemberIndex of(TypeDeclaration type) {
+        MemberIndex index = new MemberIndex();
+        if (type.getMembers() == null) {
+            return index;
+        }
+        for (BodyDeclaration member : type.getMembers()) {
+            if (member instanceof MethodDeclaration) {
+                MethodDeclaration method = (MethodDeclaration) member;
+                if (method.getType() == null) {
+                    continue;
+                }
+                List<Parameter> parameters = method.getParameters();
+                String[] paramTypes = new String[parameters == null ? 0 : parameters.size()];
+                for (int i = 0; i < paramTypes.length; i++) {
+                    paramTypes[i] = parameters.get(i).getType().toString();
+                }
+                index.add(method.getName(), method.getType().toString(), paramTypes);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Adds a method declared by the type, with its types as the front end prints them
+     */
+    public void add(String methodName, String returnType, String... paramTypes) {
+        List<Method> overloads = byName.get(methodName);
+        if (overloads == null) {
+            overloads = new ArrayList<Method>(1);
+            byName.put(methodName, overloads);
+        }
+        overloads.add(new Method(returnType, paramTypes));
+        size++;
+    }
+
+    /**
+     * The methods with the name, empty if there is none
+     */
+    public List<Method> getMethods(String methodName) {
+        List<Method> overloads = byName.get(methodName);
+        return overloads == null ? Collections.<Method>emptyList() : overloads;
+    }
+
+    /**
+     * The names of the declared methods
+     */
+    public Set<String> getNames() {
+        return Collections.unmodifiableSet(byName.keySet());
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * A method with its return and parameter types as the front end printed them
+     */
+    public static class Method {
+        private final String returnType;
+        private final String[] paramTypes;
+
+        Method(String returnType, String[] paramTypes) {
+            this.returnType = returnType;
+            this.paramTypes = paramTypes;
+        }
+
+        public String getReturnType() {
+            return returnType;
+        }
+
+        public int getParamCount() {
+            return paramTypes.length;
+        }
+
+        public String getParamType(int index) {
+            return paramTypes[index];
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package us.gibb.dev.vo_gen;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+
+/**
+ * Keeps the generated sources in memory, in the order they were generated
+ * 
+ * @see VOGen#generateInMemory()
+ */
+public class MemorySink implements OutputSink {
+    private final Map<String, CharSequence> sources = new LinkedHashMap<String, CharSequence>();
+
+    public void start(boolean incremental) {
+    }
+
+    public synchronized boolean exists(String path) {
+        return sources.containsKey(path);
+    }
+
+    public synchronized void write(String path, CharSequence content) {
+        sources.put(path, content);
+    }
+
+    public synchronized void remove(String path) {
+        sources.remove(path);
+    }
+
+    public synchronized void finish(Set<String> outputs) {
+        sources.keySet().retainAll(outputs);
+    }
+
+    public void abort() {
+    }
+
+    /**
+     * The sources by path relative to the output root
+     */
+    public synchronized Map<String, CharSequence> getSources() {
+        return Collections.unmodifiableMap(sources);
+    }
+
+    /**
+     * The sources as compilation units for a {@link javax.tools.JavaCompiler} task
+     */
+    public synchronized List<JavaFileObject> getJavaFileObjects() {
+        List<JavaFileObject> files = new ArrayList<JavaFileObject>(sources.size());
+        for (Map.Entry<String, CharSequence> source : sources.entrySet()) {
+            files.add(new Source(source.getKey(), source.getValue()));
+        }
+        return files;
+    }
+
+    private static class Source extends SimpleJavaFileObject {
+        private final CharSequence content;
+
+        Source(String path, CharSequence content) {
+            super(URI.create("string:///"+path), Kind.SOURCE);
+            this.content = content;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return content;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package us.gibb.dev.vo_gen;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Receives the generated sources. Paths are relative to the output root and use '/' as separator, ie
+ * "us/gibb/dev/model/vo/UserVO.java".
+ * <p>
+ * A generation calls a sink from a single thread from {@link #start(boolean)} to {@link #finish(Set)} or
+ * {@link #abort()}, except {@link #exists(String)} which is called concurrently while sources are parsed.
+ * Sources are written in the {@link #ENCODING}.
+ * 
+ * @see FileSystemSink
+ * @see MemorySink
+ */
+public interface OutputSink {
+
+    /**
+     * The encoding of the written sources, whatever the platform encoding is
+     */
+    String ENCODING = "UTF-8";
+
+    /**
+     * Called before anything is written
+     * 
+     * @param incremental true if sources whose output exists are not generated again, so existing outputs
+     *        must be kept
+     */
+    void start(boolean incremental) throws IOException;
+
+    /**
+     * Whether a source written by a previous generation is still there
+     */
+    boolean exists(String path);
+
+    void write(String path, CharSequence content) throws IOException;
+
+    /**
+     * Removes a source written by a previous generation that is no longer generated
+     */
+    void remove(String path) throws IOException;
+
+    /**
+     * Called after everything was written
+     * 
+     * @param outputs the paths of all sources of the generation, including the ones that were up to date
+     *        and not written again
+     */
+    void finish(Set<String> outputs) throws IOException;
+
+    /**
+     * Called instead of {@link #finish(Set)} when the generation failed, discards what is not complete
+     */
+    void abort();
+}
@@ -0,0 +1,655 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package us.gibb.dev.vo_gen;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads only the declarations of a source: the fields and the method signatures of its first type. Method
+ * bodies, initializers and nested types are skipped by matching their braces without being tokenized, so
+ * most of a class with a lot of logic is never looked at.
+ * <p>
+ * Produces the same signature as {@link JavaParserFrontEnd} for sources that compile, types are printed the
+ * way JavaParser prints them. Thread safe.
+ */
+public class SignatureScanner implements FrontEnd {
+
+    private static final Set<String> MODIFIERS = new HashSet<String>(Arrays.asList("public", "protected",
+            "private", "static", "final", "abstract", "transient", "volatile", "synchronized", "native",
+            "strictfp"));
+
+    /**
+     * Sources are read in the encoding they are written in
+     */
+    private static final Charset CHARSET = Charset.forName(OutputSink.ENCODING);
+
+    public TypeSignature read(File file, byte[] content) throws Exception {
+        return new Scan(new String(content, CHARSET).toCharArray()).compilationUnit();
+    }
+
+    /**
+     * The name of the first type declared by the source, which is not read any further. Null if it declares
+     * none.
+     */
+    public static String typeName(byte[] content) throws ParseException {
+        return new Scan(new String(content, CHARSET).toCharArray()).firstTypeName();
+    }
+
+    /**
+     * The state of scanning one source
+     */
+    private static class Scan {
+        private static final int EOF = 0;
+        private static final int IDENT = 1;
+        private static final int SYMBOL = 2;
+        private static final int LITERAL = 3;
+        private static final int ELLIPSIS = 4;
+
+        private final char[] chars;
+        private int pos;
+
+        // the current token
+        private int kind;
+        private String text;
+        private char symbol;
+
+        Scan(char[] chars) {
+            this.chars = chars;
+        }
+
+        TypeSignature compilationUnit() throws ParseException {
+            TypeSignature signature = null;
+            List<String> imports = new ArrayList<String>();
+            int typeCount = 0;
+            next();
+            while (kind != EOF) {
+                if (signature == null && isIdent("import")) {
+                    importDeclaration(imports);
+                    continue;
+                }
+                if (is('@')) {
+                    next();
+                    if (!isIdent("interface")) {
+                        annotation();
+                        continue;
+                    }
+                }
+                if (isIdent("class") || isIdent("interface") || isIdent("enum")) {
+                    typeCount++;
+                    if (signature == null) {
+                        signature = type();
+                    } else {
+                        skipType();
+                    }
+                    continue;
+                }
+                if (is('{')) {
+                    skipBalanced('{', '}');
+                }
+                next();
+            }
+            if (signature != null) {
+                signature.setTypeCount(typeCount);
+                for (String imported : imports) {
+                    signature.addImport(imported);
+                }
+            }
+            return signature;
+        }
+
+        /**
+         * Adds an import as JavaParser prints it, static imports are skipped
+         */
+        private void importDeclaration(List<String> imports) throws ParseException {
+            next();
+            boolean isStatic = isIdent("static");
+            if (isStatic) {
+                next();
+            }
+            StringBuilder name = new StringBuilder(ident());
+            while (is('.')) {
+                next();
+                if (is('*')) {
+                    next();
+                    name.append(".*");
+                    break;
+                }
+                name.append('.').append(ident());
+            }
+            expect(';');
+            if (!isStatic) {
+                imports.add(name.toString());
+            }
+        }
+
+        String firstTypeName() throws ParseException {
+            next();
+            while (kind != EOF) {
+                if (is('@')) {
+                    next();
+                    if (!isIdent("interface")) {
+                        annotation();
+                        continue;
+                    }
+                }
+                if (isIdent("class") || isIdent("interface") || isIdent("enum")) {
+                    next();
+                    return ident();
+                }
+                next();
+            }
+            return null;
+        }
+
+        /**
+         * A type declaration from its keyword to after its body
+         */
+        private TypeSignature type() throws ParseException {
+            boolean isEnum = isIdent("enum");
+            boolean isClass = isIdent("class");
+            // an annotation type declares its members like methods, but they are not
+            boolean isAnnotation = previousIs('@');
+            next();
+            TypeSignature signature = new TypeSignature(ident(), 1, new MemberIndex());
+            if (is('<')) {
+                typeParameters(signature);
+            }
+            while (!is('{')) {
+                require(kind != EOF, "type body");
+                if (isClass && isIdent("extends")) {
+                    next();
+                    signature.setSuperclass(typeName());
+                    continue;
+                }
+                next();
+            }
+            next();
+            if (isEnum) {
+                enumConstants();
+            }
+            while (!is('}')) {
+                require(kind != EOF, "}");
+                member(signature, isAnnotation);
+            }
+            next();
+            return signature;
+        }
+
+        private void skipType() throws ParseException {
+            while (!is('{')) {
+                require(kind != EOF, "type body");
+                next();
+            }
+            skipBalanced('{', '}');
+            next();
+        }
+
+        private void enumConstants() throws ParseException {
+            while (!is('}')) {
+                require(kind != EOF, "}");
+                if (is(';')) {
+                    next();
+                    return;
+                }
+                if (is('@')) {
+                    next();
+                    annotation();
+                    continue;
+                }
+                if (is('(')) {
+                    skipBalanced('(', ')');
+                } else if (is('{')) {
+                    skipBalanced('{', '}');
+                }
+                next();
+            }
+        }
+
+        private void member(TypeSignature signature, boolean inAnnotation) throws ParseException {
+            while (true) {
+                if (is('@')) {
+                    next();
+                    if (isIdent("interface")) {
+                        skipType();
+                        return;
+                    }
+                    annotation();
+                } else if (kind == IDENT && MODIFIERS.contains(text)) {
+                    next();
+                } else {
+                    break;
+                }
+            }
+            if (is(';')) {
+                next();
+                return;
+            }
+            if (is('{')) {
+                // initializer
+                skipBalanced('{', '}');
+                next();
+                return;
+            }
+            if (isIdent("class") || isIdent("interface") || isIdent("enum")) {
+                skipType();
+                return;
+            }
+            if (is('<')) {
+                skipAngles();
+            }
+            String type = typeName();
+            if (is('(')) {
+                // constructor
+                skipBalanced('(', ')');
+                next();
+                skipToBody();
+                return;
+            }
+            String name = ident();
+            if (is('(')) {
+                List<String> params = parameters();
+                skipToBody();
+                if (!inAnnotation) {
+                    signature.getMethods().add(name, type, params.toArray(new String[params.size()]));
+                }
+                return;
+            }
+            while (true) {
+                dimensions();
+                signature.addField(name, type);
+                if (is('=')) {
+                    next();
+                    skipInitializer();
+                }
+                if (is(',')) {
+                    next();
+                    name = ident();
+                    continue;
+                }
+                expect(';');
+                return;
+            }
+        }
+
+        /**
+         * The rest of an annotation after the @
+         */
+        private void annotation() throws ParseException {
+            ident();
+            while (is('.')) {
+                next();
+                ident();
+            }
+            if (is('(')) {
+                skipBalanced('(', ')');
+                next();
+            }
+        }
+
+        /**
+         * A type as JavaParser prints it
+         */
+        private String typeName() throws ParseException {
+            StringBuilder buf = new StringBuilder();
+            buf.append(ident());
+            while (true) {
+                if (is('<')) {
+                    typeArguments(buf);
+                }
+                if (!is('.')) {
+                    break;
+                }
+                next();
+                buf.append('.').append(ident());
+            }
+            while (is('[')) {
+                next();
+                expect(']');
+                buf.append("[]");
+            }
+            return buf.toString();
+        }
+
+        private void typeArguments(StringBuilder buf) throws ParseException {
+            next();
+            buf.append('<');
+            while (true) {
+                if (is('?')) {
+                    next();
+                    buf.append('?');
+                    if (isIdent("extends") || isIdent("super")) {
+                        buf.append(' ').append(text).append(' ');
+                        next();
+                        buf.append(typeName());
+                    }
+                } else {
+                    buf.append(typeName());
+                }
+                if (!is(',')) {
+                    break;
+                }
+                next();
+                buf.append(", ");
+            }
+            expect('>');
+            buf.append('>');
+        }
+
+        /**
+         * The parameter types of a method, varargs are declared as their element type
+         */
+        private List<String> parameters() throws ParseException {
+            List<String> types = new ArrayList<String>();
+            next();
+            while (!is(')')) {
+                while (is('@') || isIdent("final")) {
+                    if (is('@')) {
+                        next();
+                        annotation();
+                    } else {
+                        next();
+                    }
+                }
+                types.add(typeName());
+                if (kind == ELLIPSIS) {
+                    next();
+                }
+                ident();
+                dimensions();
+                if (is(',')) {
+                    next();
+                } else {
+                    require(is(')'), ")");
+                }
+            }
+            next();
+            return types;
+        }
+
+        private void dimensions() throws ParseException {
+            while (is('[')) {
+                next();
+                expect(']');
+            }
+        }
+
+        /**
+         * Skips the throws clause and body of a method or the default value of an annotation member
+         */
+        private void skipToBody() throws ParseException {
+            while (!is(';')) {
+                require(kind != EOF, "method body");
+                if (is('{')) {
+                    skipBalanced('{', '}');
+                    next();
+                    return;
+                }
+                next();
+            }
+            next();
+        }
+
+        /**
+         * Skips a variable initializer up to the comma or semicolon ending it
+         */
+        private void skipInitializer() throws ParseException {
+            int depth = 0;
+            while (kind != EOF) {
+                if (depth == 0 && (is(',') || is(';'))) {
+                    return;
+                }
+                if (is('(') || is('[')) {
+                    depth++;
+                } else if (is(')') || is(']')) {
+                    depth--;
+                } else if (is('{')) {
+                    // array initializer or anonymous class
+                    skipBalanced('{', '}');
+                } else if (is('<') && skipTypeArguments()) {
+                    continue;
+                }
+                next();
+            }
+        }
+
+        /**
+         * Skips type arguments in an expression, ie "new HashMap<String, Date>()", so their commas do not
+         * end the variable. Returns false without moving if the &lt; is an operator.
+         */
+        private boolean skipTypeArguments() {
+            int start = pos;
+            int depth = 0;
+            do {
+                if (is('<')) {
+                    depth++;
+                } else if (is('>')) {
+                    depth--;
+                } else if (!(kind == IDENT || is('.') || is(',') || is('?') || is('[') || is(']') || is('&'))) {
+                    pos = start;
+                    symbol = '<';
+                    kind = SYMBOL;
+                    return false;
+                }
+                next();
+            } while (depth > 0);
+            return true;
+        }
+
+        /**
+         * Adds the names of the type parameters of a type, their bounds are skipped
+         */
+        private void typeParameters(TypeSignature signature) throws ParseException {
+            int depth = 0;
+            boolean name = false;
+            do {
+                require(kind != EOF, ">");
+                if (is('<')) {
+                    depth++;
+                    name = depth == 1;
+                } else if (is('>')) {
+                    depth--;
+                } else if (depth == 1 && is(',')) {
+                    name = true;
+                } else if (name && kind == IDENT) {
+                    signature.addTypeParameter(text);
+                    name = false;
+                } else if (is('@')) {
+                    next();
+                    annotation();
+                    continue;
+                }
+                next();
+            } while (depth > 0);
+        }
+
+        /**
+         * Skips the type parameters of a generic method
+         */
+        private void skipAngles() throws ParseException {
+            int depth = 0;
+            do {
+                require(kind != EOF, ">");
+                if (is('<')) {
+                    depth++;
+                } else if (is('>')) {
+                    depth--;
+                }
+                next();
+            } while (depth > 0);
+        }
+
+        /**
+         * Skips to the close matching the current open, without tokenizing what is in between
+         */
+        private void skipBalanced(char open, char close) throws ParseException {
+            int depth = 1;
+            while (pos < chars.length) {
+                char c = chars[pos++];
+                if (c == open) {
+                    depth++;
+                } else if (c == close) {
+                    if (--depth == 0) {
+                        return;
+                    }
+                } else if (c == '"' || c == '\'') {
+                    skipLiteral(c);
+                } else if (c == '/' && pos < chars.length && (chars[pos] == '/' || chars[pos] == '*')) {
+                    pos--;
+                    skipComment();
+                }
+            }
+            throw error(String.valueOf(close));
+        }
+
+        private String ident() throws ParseException {
+            require(kind == IDENT, "identifier");
+            String ident = text;
+            next();
+            return ident;
+        }
+
+        private void expect(char c) throws ParseException {
+            require(is(c), String.valueOf(c));
+            next();
+        }
+
+        private void require(boolean condition, String expected) throws ParseException {
+            if (!condition) {
+                throw error(expected);
+            }
+        }
+
+        private ParseException error(String expected) {
+            int line = 1;
+            for (int i = 0; i < pos && i < chars.length; i++) {
+                if (chars[i] == '\n') {
+                    line++;
+                }
+            }
+            return new ParseException("Expected "+expected+" at line "+line, pos);
+        }
+
+        private boolean is(char c) {
+            return kind == SYMBOL && symbol == c;
+        }
+
+        private boolean isIdent(String ident) {
+            return kind == IDENT && text.equals(ident);
+        }
+
+        /**
+         * Whether the character before the current token, ignoring whitespace, is the given one
+         */
+        private boolean previousIs(char c) {
+            int i = pos - text.length() - 1;
+            while (i >= 0 && Character.isWhitespace(chars[i])) {
+                i--;
+            }
+            return i >= 0 && chars[i] == c;
+        }
+
+        private void next() {
+            skipWhitespace();
+            if (pos >= chars.length) {
+                kind = EOF;
+                return;
+            }
+            char c = chars[pos];
+            if (Character.isJavaIdentifierStart(c)) {
+                int start = pos;
+                while (pos < chars.length && Character.isJavaIdentifierPart(chars[pos])) {
+                    pos++;
+                }
+                text = new String(chars, start, pos - start);
+                kind = IDENT;
+            } else if (c == '"' || c == '\'') {
+                pos++;
+                skipLiteral(c);
+                kind = LITERAL;
+            } else if (Character.isDigit(c)) {
+                while (pos < chars.length && (Character.isLetterOrDigit(chars[pos]) || chars[pos] == '.'
+                        || chars[pos] == '_' || (chars[pos] == '-' || chars[pos] == '+')
+                        && (chars[pos - 1] == 'e' || chars[pos - 1] == 'E' || chars[pos - 1] == 'p'
+                                || chars[pos - 1] == 'P'))) {
+                    pos++;
+                }
+                kind = LITERAL;
+            } else if (c == '.' && pos + 2 < chars.length && chars[pos + 1] == '.' && chars[pos + 2] == '.') {
+                pos += 3;
+                kind = ELLIPSIS;
+            } else {
+                pos++;
+                symbol = c;
+                kind = SYMBOL;
+            }
+        }
+
+        /**
+         * Skips a string or char literal whose opening quote was read
+         */
+        private void skipLiteral(char quote) {
+            while (pos < chars.length) {
+                char c = chars[pos++];
+                if (c == '\\') {
+                    pos++;
+                } else if (c == quote || c == '\n') {
+                    return;
+                }
+            }
+        }
+
+        private void skipWhitespace() {
+            while (pos < chars.length) {
+                char c = chars[pos];
+                if (Character.isWhitespace(c)) {
+                    pos++;
+                } else if (c == '/' && pos + 1 < chars.length && (chars[pos + 1] == '/' || chars[pos + 1] == '*')) {
+                    skipComment();
+                } else {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Skips the comment starting at the current position
+         */
+        private void skipComment() {
+            if (chars[pos + 1] == '/') {
+                while (pos < chars.length && chars[pos] != '\n') {
+                    pos++;
+                }
+                return;
+            }
+            pos += 2;
+            while (pos < chars.length && !(chars[pos] == '*' && pos + 1 < chars.length && chars[pos + 1] == '/')) {
+                pos++;
+            }
+            pos += 2;
+        }
+    }
+}
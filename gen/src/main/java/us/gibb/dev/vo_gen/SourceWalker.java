@@ -0,0 +1,263 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package us.gibb.dev.vo_gen;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import us.gibb.dev.vo_gen.GenerationReport.Phase;
+import us.gibb.dev.vo_gen.GenerationReport.Probe;
+
+/**
+ * Finds the source files of packages, or the class files when walking compiled classes in a directory or a
+ * jar. The include and exclude globs are matched against the path of a file relative to the root, ie
+ * "us/gibb/model/User.java", before it is opened. Class files of nested classes are not listed.
+ * <p>
+ * With a class filter, only the sources whose file name selects their class are listed, as well as sources
+ * declaring a class the filter names exactly that no file name matched.
+ * <p>
+ * When recursive, the subdirectories of a package that are valid package names are walked as well. The
+ * walk lists directories in parallel: the listing of a subpackage is submitted as soon as its parent is
+ * listed, while the caller consumes the packages in order as their listings complete.
+ */
+class SourceWalker {
+    static final String SUFFIX = ".java";
+
+    private final File base;
+    private final Path root;
+    private final String prefix;
+    private final String suffix;
+    private final boolean classFiles;
+    private final List<PathMatcher> includes;
+    private final List<PathMatcher> excludes;
+    private final boolean recursive;
+    private ClassFilter classFilter;
+
+    /**
+     * @param includes globs of the sources to read, null or empty for all
+     * @param excludes globs of the sources not to read, null for none
+     */
+    SourceWalker(File srcDir, String[] includes, String[] excludes, boolean recursive) {
+        this(srcDir, srcDir.toPath(), "", SUFFIX, includes, excludes, recursive);
+    }
+
+    /**
+     * @param base the directory or jar, to name the directories in messages
+     * @param root the root of the packages
+     * @param prefix of the paths of the files, to keep them apart from those of other roots
+     * @param suffix of the files to list, ".java" or ".class"
+     */
+    SourceWalker(File base, Path root, String prefix, String suffix, String[] includes, String[] excludes,
+            boolean recursive) {
+        this.base = base;
+        this.root = root;
+        this.prefix = prefix;
+        this.suffix = suffix;
+        this.classFiles = suffix.equals(ClassFileFrontEnd.SUFFIX);
+        this.includes = matchers(includes);
+        this.excludes = matchers(excludes);
+        this.recursive = recursive;
+    }
+
+    /**
+     * Only lists the sources whose file name selects their class, null for all
+     */
+    void setClassFilter(ClassFilter classFilter) {
+        this.classFilter = classFilter;
+    }
+
+    /**
+     * Lists the sources of a package and, when recursive, its subpackages, sorted by name so the order does
+     * not depend on the file system
+     */
+    Listing list(String packageName) throws IOException {
+        String packageDir = packageName.replace('.', '/');
+        Path directory = root.resolve(packageDir);
+        Listing listing = new Listing();
+        if (!Files.isDirectory(directory)) {
+            return listing;
+        }
+        FileSystem fs = FileSystems.getDefault();
+        List<Path> unselected = null;
+        DirectoryStream<Path> stream = Files.newDirectoryStream(directory);
+        try {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                if (name.endsWith(suffix)) {
+                    String className = name.substring(0, name.length() - suffix.length());
+                    if (classFiles && className.indexOf('$') >= 0 || !accept(fs.getPath(packageDir, name))
+                            || !Files.isRegularFile(path)) {
+                        continue;
+                    }
+                    if (classFilter == null || classFilter.matches(packageName, className)) {
+                        listing.files.add(path);
+                    } else if (!classFiles) {
+                        // a class file is always named after its class
+                        if (unselected == null) {
+                            unselected = new ArrayList<Path>();
+                        }
+                        unselected.add(path);
+                    }
+                } else if (recursive && isIdentifier(name) && Files.isDirectory(path)) {
+                    listing.subpackages.add(packageName.length() == 0 ? name : packageName+"."+name);
+                }
+            }
+        } finally {
+            stream.close();
+        }
+        if (unselected != null) {
+            findRenamed(packageName, listing.files, unselected);
+        }
+        Collections.sort(listing.files);
+        Collections.sort(listing.subpackages);
+        return listing;
+    }
+
+    /**
+     * Adds the unselected sources that declare a class named by the filter whose file name did not match,
+     * only their declared type name is read
+     */
+    private void findRenamed(String packageName, List<Path> files, List<Path> unselected) throws IOException {
+        Set<String> missing = new HashSet<String>(classFilter.getExactNames(packageName));
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            missing.remove(name.substring(0, name.length() - SUFFIX.length()));
+        }
+        for (Path file : unselected) {
+            if (missing.isEmpty()) {
+                return;
+            }
+            String typeName;
+            try {
+                typeName = SignatureScanner.typeName(Files.readAllBytes(file));
+            } catch (ParseException e) {
+                // not a type it is looking for
+                continue;
+            }
+            if (typeName != null && missing.remove(typeName)) {
+                files.add(file);
+            }
+        }
+    }
+
+    /**
+     * Starts listing the package and its subpackages in the pool
+     */
+    Node walk(final String packageName, final ExecutorService pool, final GenerationReport report) {
+        Future<Listing> listing = pool.submit(new Callable<Listing>() {
+            public Listing call() throws Exception {
+                Probe probe = report.start();
+                Listing listing = list(packageName);
+                probe.stop(Phase.SCAN, packageName);
+                for (String subpackage : listing.subpackages) {
+                    listing.children.add(walk(subpackage, pool, report));
+                }
+                return listing;
+            }
+        });
+        return new Node(packageName, new File(base, packageName.replace('.', '/')), listing);
+    }
+
+    /**
+     * The path a file of the package is recorded by, ie "us/gibb/model/User.java"
+     */
+    String path(String packageName, String fileName) {
+        return prefix+packageName.replace('.', '/')+"/"+fileName;
+    }
+
+    private boolean accept(Path relative) {
+        for (PathMatcher exclude : excludes) {
+            if (exclude.matches(relative)) {
+                return false;
+            }
+        }
+        if (includes.isEmpty()) {
+            return true;
+        }
+        for (PathMatcher include : includes) {
+            if (include.matches(relative)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<PathMatcher> matchers(String[] globs) {
+        List<PathMatcher> matchers = new ArrayList<PathMatcher>();
+        if (globs != null) {
+            for (String glob : globs) {
+                matchers.add(FileSystems.getDefault().getPathMatcher("glob:"+glob.trim()));
+            }
+        }
+        return matchers;
+    }
+
+    private static boolean isIdentifier(String name) {
+        if (name.length() == 0 || !Character.isJavaIdentifierStart(name.charAt(0))) {
+            return false;
+        }
+        for (int i = 1; i < name.length(); i++) {
+            if (!Character.isJavaIdentifierPart(name.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A package whose listing may still be in progress
+     */
+    static class Node {
+        final String packageName;
+        final File directory;
+        final Future<Listing> listing;
+
+        Node(String packageName, File directory, Future<Listing> listing) {
+            this.packageName = packageName;
+            this.directory = directory;
+            this.listing = listing;
+        }
+    }
+
+    static class Listing {
+        final List<Path> files = new ArrayList<Path>();
+        final List<String> subpackages = new ArrayList<String>();
+
+        /**
+         * The walks of the subpackages, in the order of {@link #subpackages}
+         */
+        final List<Node> children = new ArrayList<Node>();
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package us.gibb.dev.vo_gen;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Shares equal strings between the class infos of a generation. Field names, types and accessor names
+ * repeat across the classes of a model, so the summaries kept for the converters and the manifest hold
+ * one copy of each instead of one per class.
+ * <p>
+ * {@link VOGen} creates a pool for every generation, or one for all groups of a batch, and drops it with
+ * the generation, so a long running build or watch does not keep the strings of past generations.
+ */
+class StringPool {
+    private final ConcurrentMap<String, String> strings = new ConcurrentHashMap<String, String>();
+
+    String intern(String s) {
+        if (s == null) {
+            return null;
+        }
+        String pooled = strings.putIfAbsent(s, s);
+        return pooled == null ? s : pooled;
+    }
+
+    /**
+     * A copy of the class info that uses pooled strings and an exactly sized field list
+     */
+    ClassInfo intern(ClassInfo info) {
+        if (info == null) {
+            return null;
+        }
+        List<FieldInfo> fields = new ArrayList<FieldInfo>(info.getFields().size());
+        for (FieldInfo field : info.getFields()) {
+            fields.add(new FieldInfo(intern(field.getName()), intern(field.getType()), intern(field.getGetter()),
+                    intern(field.getSetter())));
+        }
+        List<String> imports = new ArrayList<String>(info.getImports().size());
+        for (String imported : info.getImports()) {
+            imports.add(intern(imported));
+        }
+        return new ClassInfo(intern(info.getName()), intern(info.getPackageName()), fields, imports);
+    }
+
+    int size() {
+        return strings.size();
+    }
+}
@@ -0,0 +1,383 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package us.gibb.dev.vo_gen;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Resolves the types of the sources of a generation to canonical names: qualified, with '$' between a class
+ * and its nested classes and without whitespace, ie "java.util.Map<java.lang.String,java.util.List<?
+ * extends java.util.Date>>". Canonical names are interned, so equal types are the same string.
+ * <p>
+ * A simple name is resolved like javac does: from the single type imports, the package of the source, the
+ * imports on demand and java.lang, in that order. Whether a class exists is looked up once per table, as a
+ * source in one of the source roots or a class file on the classpath of the context class loader. A name
+ * that does not resolve, like a type variable, is kept as it is. Thread safe, a {@link Scope} is used by
+ * one thread.
+ */
+public class SymbolTable {
+    private static final Set<String> PRIMITIVES = new HashSet<String>(Arrays.asList("boolean", "byte", "char",
+            "short", "int", "long", "float", "double", "void"));
+
+    private final List<File> sourceRoots = new ArrayList<File>();
+    private final ClassLoader loader;
+    private final ConcurrentMap<String, String> names = new ConcurrentHashMap<String, String>();
+    private final ConcurrentMap<String, Boolean> classes = new ConcurrentHashMap<String, Boolean>();
+
+    /**
+     * @param sourceRoots directories the sources of the generation are in, null ones are ignored
+     */
+    public SymbolTable(File... sourceRoots) {
+        for (File root : sourceRoots) {
+            if (root != null) {
+                this.sourceRoots.add(root);
+            }
+        }
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        this.loader = loader != null ? loader : SymbolTable.class.getClassLoader();
+    }
+
+    /**
+     * The scope of a source, its imports are resolved once
+     * 
+     * @param imports the single type imports and the imports on demand, ie "java.util.*"
+     */
+    public Scope scope(String packageName, List<String> imports) {
+        return new Scope(packageName, imports);
+    }
+
+    String intern(String name) {
+        String interned = names.putIfAbsent(name, name);
+        return interned == null ? name : interned;
+    }
+
+    /**
+     * Whether the class with the canonical name exists
+     */
+    boolean exists(String name) {
+        Boolean exists = classes.get(name);
+        if (exists == null) {
+            exists = lookup(name);
+            classes.putIfAbsent(name, exists);
+        }
+        return exists;
+    }
+
+    private boolean lookup(String name) {
+        int nested = name.indexOf('$');
+        String topLevel = (nested < 0 ? name : name.substring(0, nested)).replace('.', '/');
+        for (File root : sourceRoots) {
+            if (new File(root, topLevel+".java").isFile()) {
+                return true;
+            }
+        }
+        return loader.getResource(name.replace('.', '/')+".class") != null;
+    }
+
+    /**
+     * The canonical form of a qualified name, the first segment that starts with an upper case letter is
+     * taken as the top level class
+     */
+    static String nest(String qualifiedName) {
+        int start = 0;
+        while (start < qualifiedName.length() && !Character.isUpperCase(qualifiedName.charAt(start))) {
+            int dot = qualifiedName.indexOf('.', start);
+            if (dot < 0) {
+                return qualifiedName;
+            }
+            start = dot + 1;
+        }
+        int dot = qualifiedName.indexOf('.', start);
+        return dot < 0 ? qualifiedName : qualifiedName.substring(0, dot)+qualifiedName.substring(dot).replace(
+                '.', '$');
+    }
+
+    /**
+     * Resolves the types of one source
+     */
+    public class Scope {
+        private final String packageName;
+        private final Map<String, String> singleImports = new HashMap<String, String>();
+        private final List<String> onDemand = new ArrayList<String>();
+        private final Map<String, String> resolved = new HashMap<String, String>();
+
+        Scope(String packageName, List<String> imports) {
+            this.packageName = packageName;
+            for (String imported : imports) {
+                if (imported.endsWith(".*")) {
+                    onDemand.add(imported.substring(0, imported.length() - 2));
+                } else {
+                    singleImports.put(imported.substring(imported.lastIndexOf('.') + 1), nest(imported));
+                }
+            }
+        }
+
+        /**
+         * The canonical name of a type as a front end prints it, ie "Map<String, List<Date>>"
+         */
+        public String resolve(String type) {
+            String name = resolved.get(type);
+            if (name == null) {
+                StringBuilder buf = new StringBuilder(type.length() * 2);
+                new TypeReader(type).type(buf);
+                name = intern(buf.toString());
+                resolved.put(type, name);
+            }
+            return name;
+        }
+
+        /**
+         * Resolves a possibly qualified class name without type arguments
+         */
+        String resolveName(String name) {
+            int dot = name.indexOf('.');
+            if (dot > 0 && !Character.isUpperCase(name.charAt(0))) {
+                return nest(name);
+            }
+            String first = dot < 0 ? name : name.substring(0, dot);
+            String type = resolveSimple(first);
+            if (type == null) {
+                type = first;
+            }
+            return dot < 0 ? type : type+name.substring(dot).replace('.', '$');
+        }
+
+        private String resolveSimple(String simpleName) {
+            if (PRIMITIVES.contains(simpleName)) {
+                return simpleName;
+            }
+            String type = singleImports.get(simpleName);
+            if (type != null) {
+                return type;
+            }
+            type = packageName.length() == 0 ? simpleName : packageName+"."+simpleName;
+            if (exists(type)) {
+                return type;
+            }
+            for (String imported : onDemand) {
+                type = nest(imported+"."+simpleName);
+                if (exists(type)) {
+                    return type;
+                }
+            }
+            type = "java.lang."+simpleName;
+            return exists(type) ? type : null;
+        }
+
+        /**
+         * Reads a printed type into its canonical name
+         */
+        private class TypeReader {
+            private final String type;
+            private int pos;
+
+            TypeReader(String type) {
+                this.type = type;
+            }
+
+            void type(StringBuilder out) {
+                skipWhitespace();
+                if (is('?')) {
+                    pos++;
+                    out.append('?');
+                    skipWhitespace();
+                    String bound = name();
+                    if (bound.length() > 0) {
+                        out.append(' ').append(bound).append(' ');
+                        type(out);
+                    }
+                    return;
+                }
+                out.append(resolveName(name()));
+                while (true) {
+                    skipWhitespace();
+                    if (is('<')) {
+                        typeArguments(out);
+                    } else if (is('.') && type.startsWith("...", pos)) {
+                        pos += 3;
+                        out.append("...");
+                    } else if (is('.')) {
+                        // a class nested in a parameterized class
+                        pos++;
+                        skipWhitespace();
+                        out.append('$').append(name());
+                    } else if (is('[')) {
+                        pos++;
+                        skipWhitespace();
+                        pos++;
+                        out.append("[]");
+                    } else {
+                        return;
+                    }
+                }
+            }
+
+            private void typeArguments(StringBuilder out) {
+                pos++;
+                out.append('<');
+                while (pos < type.length()) {
+                    type(out);
+                    skipWhitespace();
+                    if (is(',')) {
+                        pos++;
+                        out.append(',');
+                    } else {
+                        pos++;
+                        break;
+                    }
+                }
+                out.append('>');
+            }
+
+            /**
+             * A possibly qualified name, empty if there is none
+             */
+            private String name() {
+                int start = pos;
+                while (pos < type.length() && (Character.isJavaIdentifierPart(type.charAt(pos))
+                        || is('.') && !type.startsWith("...", pos))) {
+                    pos++;
+                }
+                return type.substring(start, pos);
+            }
+
+            private boolean is(char c) {
+                return pos < type.length() && type.charAt(pos) == c;
+            }
+
+            private void skipWhitespace() {
+                while (pos < type.length() && Character.isWhitespace(type.charAt(pos))) {
+                    pos++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Prints canonical types in a source of a package and collects its imports. A class is printed by its
+     * simple name, and imported unless it is in java.lang or the package. It is printed qualified if its
+     * simple name is taken by another class.
+     */
+    public static class Imports {
+        private final String packageName;
+        private final Map<String, String> simpleNames = new HashMap<String, String>();
+        private final Set<String> imports = new TreeSet<String>();
+
+        /**
+         * @param className the class the source declares, its simple name is taken
+         */
+        public Imports(String packageName, String className) {
+            this.packageName = packageName;
+            simpleNames.put(className, packageName+"."+className);
+        }
+
+        /**
+         * Imports a class the source uses besides the printed types, returns false if its simple name is
+         * taken
+         */
+        public boolean add(String qualifiedName) {
+            String simpleName = qualifiedName.substring(qualifiedName.lastIndexOf('.') + 1);
+            if (!take(simpleName, qualifiedName)) {
+                return false;
+            }
+            imports.add(qualifiedName);
+            return true;
+        }
+
+        /**
+         * How a canonical type is written in the source, ie "Map<String, List<? extends Date>>"
+         */
+        public String print(String type) {
+            StringBuilder out = new StringBuilder(type.length());
+            int pos = 0;
+            while (pos < type.length()) {
+                char c = type.charAt(pos);
+                if (Character.isJavaIdentifierStart(c)) {
+                    int start = pos;
+                    while (pos < type.length() && (Character.isJavaIdentifierPart(type.charAt(pos))
+                            || type.charAt(pos) == '.' && !type.startsWith("...", pos))) {
+                        pos++;
+                    }
+                    printName(type.substring(start, pos), out);
+                    continue;
+                }
+                out.append(c);
+                if (c == ',') {
+                    out.append(' ');
+                }
+                pos++;
+            }
+            return out.toString();
+        }
+
+        private void printName(String name, StringBuilder out) {
+            if (name.equals("extends") || name.equals("super")) {
+                out.append(name);
+                return;
+            }
+            int nested = name.indexOf('$');
+            String topLevel = nested < 0 ? name : name.substring(0, nested);
+            String rest = nested < 0 ? "" : name.substring(nested).replace('$', '.');
+            int dot = topLevel.lastIndexOf('.');
+            if (dot < 0) {
+                // primitive or not resolved
+                take(topLevel, topLevel);
+                out.append(topLevel).append(rest);
+                return;
+            }
+            String classPackage = topLevel.substring(0, dot);
+            String simpleName = topLevel.substring(dot + 1);
+            if (!take(simpleName, topLevel)) {
+                out.append(topLevel).append(rest);
+                return;
+            }
+            if (!classPackage.equals("java.lang") && !classPackage.equals(packageName)) {
+                imports.add(topLevel);
+            }
+            out.append(simpleName).append(rest);
+        }
+
+        private boolean take(String simpleName, String qualifiedName) {
+            String taken = simpleNames.get(simpleName);
+            if (taken == null) {
+                simpleNames.put(simpleName, qualifiedName);
+                return true;
+            }
+            return taken.equals(qualifiedName);
+        }
+
+        /**
+         * The classes to import, sorted
+         */
+        public List<String> getImports() {
+            return new ArrayList<String>(imports);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package us.gibb.dev.vo_gen;
+
+/**
+ * An emitter that merges templates which can change between generations. The generation reloads them
+ * first and records their checksums in the manifest, so a changed VO template renders the VOs again and a
+ * changed converter template the converters, without parsing the sources again.
+ */
+public interface TemplateEmitter extends Emitter {
+
+    /**
+     * Compiles the templates again whose checksum changed since they were compiled
+     */
+    void reload() throws Exception;
+
+    String getVOTemplateChecksum() throws Exception;
+
+    String getConverterTemplateChecksum() throws Exception;
+}
@@ -0,0 +1,671 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package us.gibb.dev.vo_gen;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * The classes of a generation and their superclasses, each with its superclass and the properties it
+ * declares, so the properties a class inherits are found by walking the index instead of parsing its
+ * superclasses again for every subclass.
+ * <p>
+ * A class is added once it is extracted. A superclass that is not among the extracted classes, like one in
+ * a package that is not generated, is read from the source roots the first time it is looked up. The
+ * superclasses recorded by the previous generation are taken over as long as their source has the same
+ * content, so an incremental or watch run only parses the superclasses that changed. A class restored from
+ * the manifest or the cache is added as it was recorded, and one looked up before it was restored is taken
+ * from the cache, so a restored class is not parsed as a superclass either. The groups of a batch share
+ * one index, so a class may extend a class of another group.
+ * <p>
+ * The members a class inherits from a generic superclass have the type arguments it extends the superclass
+ * with substituted for its type variables, members whose type still refers to a type variable are left out
+ * as a VO can not declare them. Thread safe.
+ */
+class TypeIndex {
+    private final SymbolTable symbols;
+    private final FrontEnd frontEnd;
+    private final List<File> roots;
+    private final String suffix;
+    private final Map<String, Type> previous = new ConcurrentHashMap<String, Type>();
+    private final Log log;
+    private final ConcurrentMap<String, FutureTask<Type>> types =
+            new ConcurrentHashMap<String, FutureTask<Type>>();
+    private final Map<String, Type> superclasses = new ConcurrentHashMap<String, Type>();
+    private final List<ClassCache> caches = new CopyOnWriteArrayList<ClassCache>();
+
+    /**
+     * An index of the extracted classes only, superclasses are not looked up
+     */
+    TypeIndex(SymbolTable symbols) {
+        this(symbols, null, Collections.<File>emptyList(), null, null);
+    }
+
+    /**
+     * @param frontEnd reads the superclasses
+     * @param roots the source directories, or the classes directory the class files are read from
+     * @param suffix of the files in the roots, ".java" or ".class"
+     * @param log where unreadable superclasses are reported
+     */
+    TypeIndex(SymbolTable symbols, FrontEnd frontEnd, List<File> roots, String suffix, Log log) {
+        this.symbols = symbols;
+        this.frontEnd = frontEnd;
+        this.roots = roots;
+        this.suffix = suffix;
+        this.log = log;
+    }
+
+    /**
+     * Takes over the superclasses recorded by a previous generation, by name
+     */
+    void addPrevious(Map<String, Type> types) {
+        previous.putAll(types);
+    }
+
+    /**
+     * Looks up the classes that are not added yet in the cache before reading them from the roots
+     */
+    void addCache(ClassCache cache) {
+        caches.add(cache);
+    }
+
+    /**
+     * Resolves the superclass and the properties of an extracted class and adds it, unless the class was
+     * already read as a superclass
+     * 
+     * @param hash of the source, null if not known
+     */
+    Type add(String packageName, TypeSignature type, String hash) {
+        return add(Type.of(packageName, type, hash, null, symbols.scope(packageName, type.getImports())));
+    }
+
+    /**
+     * Adds a class recorded by a manifest or the cache, unless the class was already read as a superclass
+     */
+    void restore(Type type) {
+        add(type.intern(symbols));
+    }
+
+    private Type add(Type type) {
+        FutureTask<Type> task = new FutureTask<Type>(new Constant(type));
+        task.run();
+        types.putIfAbsent(type.getName(), task);
+        return type;
+    }
+
+    /**
+     * The class with the canonical name, read from the root if it was not added. Null if it is not in the
+     * root or can not be read, like a class of a library.
+     */
+    Type get(String name) {
+        FutureTask<Type> task = types.get(name);
+        if (task == null) {
+            FutureTask<Type> created = new FutureTask<Type>(new Reader(name));
+            task = types.putIfAbsent(name, created);
+            if (task == null) {
+                task = created;
+                task.run();
+            }
+        }
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * The class followed by its superclasses up to the first one that is not in the index, each with the
+     * type arguments it is extended with substituted
+     */
+    List<Type> hierarchy(Type type) {
+        List<Type> hierarchy = new ArrayList<Type>(2);
+        Set<String> visited = new HashSet<String>();
+        // the type variables of the class itself are not bound
+        Map<String, String> bindings = bindings(type, null, null);
+        while (type != null && visited.add(type.getName())) {
+            hierarchy.add(type.bind(bindings, this));
+            if (type.getSuperclass() == null) {
+                break;
+            }
+            Type superclass = get(type.getSuperclass());
+            if (superclass != null) {
+                superclasses.put(superclass.getName(), superclass);
+                bindings = bindings(superclass, type.getSuperclassArguments(), bindings);
+            }
+            type = superclass;
+        }
+        return hierarchy;
+    }
+
+    /**
+     * What the type variables of a class stand for in a subclass: the type arguments the subclass extends
+     * it with, with the bindings of the subclass substituted. A variable is bound to null if the subclass
+     * extends the raw class or passes on a variable that is not bound.
+     */
+    private Map<String, String> bindings(Type type, List<String> arguments, Map<String, String> subclass) {
+        List<String> parameters = type.getTypeParameters();
+        if (parameters.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> bindings = new HashMap<String, String>();
+        for (int i = 0; i < parameters.size(); i++) {
+            String argument = null;
+            if (arguments != null && arguments.size() == parameters.size()) {
+                argument = substitute(arguments.get(i), subclass);
+            }
+            bindings.put(parameters.get(i), argument);
+        }
+        return bindings;
+    }
+
+    /**
+     * The canonical type with the bound type variables replaced, null if it refers to a variable bound to
+     * null
+     */
+    String substitute(String type, Map<String, String> bindings) {
+        if (bindings.isEmpty()) {
+            return type;
+        }
+        StringBuilder buf = new StringBuilder(type.length() * 2);
+        int pos = 0;
+        while (pos < type.length()) {
+            char c = type.charAt(pos);
+            if (!Character.isJavaIdentifierStart(c)) {
+                buf.append(c);
+                pos++;
+                continue;
+            }
+            int start = pos;
+            while (pos < type.length() && (Character.isJavaIdentifierPart(type.charAt(pos))
+                    || type.charAt(pos) == '.' && !type.startsWith("...", pos))) {
+                pos++;
+            }
+            String name = type.substring(start, pos);
+            if (bindings.containsKey(name)) {
+                name = bindings.get(name);
+                if (name == null) {
+                    return null;
+                }
+            }
+            buf.append(name);
+        }
+        return symbols.intern(buf.toString());
+    }
+
+    /**
+     * The superclasses of the indexed class with the content they were read from, ie "a.Base=hash", empty
+     * if it does not inherit from a class in the index
+     */
+    String dependencies(String name) {
+        List<Type> hierarchy = hierarchy(get(name));
+        StringBuilder buf = new StringBuilder();
+        for (int i = 1; i < hierarchy.size(); i++) {
+            Type type = hierarchy.get(i);
+            if (buf.length() > 0) {
+                buf.append(',');
+            }
+            buf.append(type.getName()).append('=').append(type.getHash());
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Whether the superclasses recorded by {@link #dependencies} still have the same content
+     */
+    boolean isCurrent(String dependencies) {
+        if (dependencies.length() == 0) {
+            return true;
+        }
+        for (String dependency : dependencies.split(",")) {
+            int eq = dependency.indexOf('=');
+            Type type = get(dependency.substring(0, eq));
+            if (type == null || !dependency.substring(eq + 1).equals(type.getHash())) {
+                return false;
+            }
+            superclasses.put(type.getName(), type);
+        }
+        return true;
+    }
+
+    /**
+     * The classes looked up as superclasses, recorded for the next generation
+     */
+    Collection<Type> getSuperclasses() {
+        return superclasses.values();
+    }
+
+    private static class Constant implements Callable<Type> {
+        private final Type type;
+
+        Constant(Type type) {
+            this.type = type;
+        }
+
+        public Type call() {
+            return type;
+        }
+    }
+
+    /**
+     * Reads a class that was not added from the root
+     */
+    private class Reader implements Callable<Type> {
+        private final String name;
+
+        Reader(String name) {
+            this.name = name;
+        }
+
+        public Type call() {
+            if (roots.isEmpty() || (suffix.equals(SourceWalker.SUFFIX) && name.indexOf('$') >= 0)) {
+                // a nested class is not the type its source is read for
+                return null;
+            }
+            File file = null;
+            for (File root : roots) {
+                File candidate = new File(root, name.replace('.', '/')+suffix);
+                if (candidate.isFile()) {
+                    file = candidate;
+                    break;
+                }
+            }
+            if (file == null) {
+                return null;
+            }
+            try {
+                byte[] bytes = FileUtils.readFileToByteArray(file);
+                String hash = Manifest.hash(bytes);
+                Type recorded = previous.get(name);
+                if (recorded != null && recorded.getHash().equals(hash)) {
+                    return recorded.intern(symbols);
+                }
+                for (ClassCache cache : caches) {
+                    ClassCache.Entry cached = cache.get(name.replace('.', '/')+suffix, hash);
+                    if (cached != null && cached.type != null) {
+                        return cached.type.intern(symbols);
+                    }
+                }
+                TypeSignature type = frontEnd.read(file, bytes);
+                if (type == null) {
+                    return null;
+                }
+                int dot = name.lastIndexOf('.');
+                String packageName = dot < 0 ? "" : name.substring(0, dot);
+                return Type.of(packageName, type, hash, file, symbols.scope(packageName, type.getImports()));
+            } catch (Exception e) {
+                log.warn("Unable to read superclass {0}, its properties are not inherited: {1}", file
+                        .getAbsolutePath(), e.getMessage());
+                return null;
+            }
+        }
+    }
+
+    /**
+     * A class with its type parameters, its canonical superclass and the properties it declares: its fields
+     * and the accessors among its methods, with canonical types
+     */
+    static class Type {
+        private final String name;
+        private final String hash;
+        private final String source;
+        private final List<String> typeParameters;
+        private final String superclass;
+        private final List<String> superclassArguments;
+        private final Map<String, String> fields;
+        /**
+         * The return types of the methods without parameters and the parameter types of the void methods
+         * with one, by method name
+         */
+        private final Map<String, List<String>> getters;
+        private final Map<String, List<String>> setters;
+
+        Type(String name, String hash, String source, List<String> typeParameters, String superclass,
+                List<String> superclassArguments, Map<String, String> fields, Map<String, List<String>> getters,
+                Map<String, List<String>> setters) {
+            this.name = name;
+            this.hash = hash;
+            this.source = source;
+            this.typeParameters = typeParameters;
+            this.superclass = superclass;
+            this.superclassArguments = superclassArguments;
+            this.fields = fields;
+            this.getters = getters;
+            this.setters = setters;
+        }
+
+        /**
+         * @param source the file the class was read from as a superclass, null for an extracted class
+         */
+        static Type of(String packageName, TypeSignature type, String hash, File source,
+                SymbolTable.Scope scope) {
+            String superclass = null;
+            List<String> superclassArguments = Collections.emptyList();
+            if (type.getSuperclass() != null) {
+                String resolved = scope.resolve(type.getSuperclass());
+                superclass = rawType(resolved);
+                superclassArguments = typeArguments(resolved);
+            }
+            Map<String, String> fields = new LinkedHashMap<String, String>();
+            for (TypeSignature.Field field : type.getFields()) {
+                fields.put(field.getName(), scope.resolve(field.getType()));
+            }
+            Map<String, List<String>> getters = new HashMap<String, List<String>>();
+            Map<String, List<String>> setters = new HashMap<String, List<String>>();
+            MemberIndex methods = type.getMethods();
+            for (String methodName : methods.getNames()) {
+                if (!methodName.startsWith("get") && !methodName.startsWith("is")
+                        && !methodName.startsWith("set")) {
+                    continue;
+                }
+                for (MemberIndex.Method method : methods.getMethods(methodName)) {
+                    if (method.getParamCount() == 0) {
+                        add(getters, methodName, scope.resolve(method.getReturnType()));
+                    } else if (method.getParamCount() == 1 && method.getReturnType().equals("void")) {
+                        add(setters, methodName, scope.resolve(method.getParamType(0)));
+                    }
+                }
+            }
+            return new Type(packageName.length() == 0 ? type.getName() : packageName+"."+type.getName(), hash,
+                    source == null ? "" : source.getAbsolutePath(), new ArrayList<String>(type
+                            .getTypeParameters()), superclass, superclassArguments, fields, getters, setters);
+        }
+
+        /**
+         * The canonical type without its type arguments, nor those of its outer classes
+         */
+        private static String rawType(String type) {
+            if (type.indexOf('<') < 0) {
+                return type;
+            }
+            StringBuilder buf = new StringBuilder(type.length());
+            int depth = 0;
+            for (int i = 0; i < type.length(); i++) {
+                char c = type.charAt(i);
+                if (c == '<') {
+                    depth++;
+                } else if (c == '>') {
+                    depth--;
+                } else if (depth == 0) {
+                    buf.append(c);
+                }
+            }
+            return buf.toString();
+        }
+
+        /**
+         * The canonical type arguments of the innermost class of a canonical type, empty if it has none
+         */
+        private static List<String> typeArguments(String type) {
+            if (!type.endsWith(">")) {
+                return Collections.emptyList();
+            }
+            List<String> arguments = new ArrayList<String>(2);
+            int depth = 0;
+            int start = type.length() - 1;
+            for (int i = type.length() - 2; depth >= 0; i--) {
+                char c = type.charAt(i);
+                if (c == '>') {
+                    depth++;
+                } else if (c == '<' && depth-- == 0 || c == ',' && depth == 0) {
+                    arguments.add(0, type.substring(i + 1, start));
+                    start = i;
+                }
+            }
+            return arguments;
+        }
+
+        private static void add(Map<String, List<String>> accessors, String methodName, String type) {
+            List<String> types = accessors.get(methodName);
+            if (types == null) {
+                types = new ArrayList<String>(1);
+                accessors.put(methodName, types);
+            }
+            types.add(type);
+        }
+
+        /**
+         * The type with its canonical names interned by the table, a type read from a manifest is not
+         */
+        Type intern(SymbolTable symbols) {
+            Map<String, String> interned = new LinkedHashMap<String, String>();
+            for (Map.Entry<String, String> field : fields.entrySet()) {
+                interned.put(field.getKey(), symbols.intern(field.getValue()));
+            }
+            List<String> arguments = new ArrayList<String>(superclassArguments.size());
+            for (String argument : superclassArguments) {
+                arguments.add(symbols.intern(argument));
+            }
+            return new Type(name, hash, source, typeParameters, superclass, arguments, interned, intern(getters,
+                    symbols), intern(setters, symbols));
+        }
+
+        /**
+         * The type with the bound type variables replaced in the types of its members, those that refer to a
+         * variable bound to null are left out
+         */
+        Type bind(Map<String, String> bindings, TypeIndex index) {
+            if (bindings.isEmpty()) {
+                return this;
+            }
+            Map<String, String> bound = new LinkedHashMap<String, String>();
+            for (Map.Entry<String, String> field : fields.entrySet()) {
+                String type = index.substitute(field.getValue(), bindings);
+                if (type != null) {
+                    bound.put(field.getKey(), type);
+                }
+            }
+            return new Type(name, hash, source, typeParameters, superclass, superclassArguments, bound, bind(
+                    getters, bindings, index), bind(setters, bindings, index));
+        }
+
+        private static Map<String, List<String>> bind(Map<String, List<String>> accessors,
+                Map<String, String> bindings, TypeIndex index) {
+            Map<String, List<String>> bound = new HashMap<String, List<String>>();
+            for (Map.Entry<String, List<String>> accessor : accessors.entrySet()) {
+                for (String type : accessor.getValue()) {
+                    type = index.substitute(type, bindings);
+                    if (type != null) {
+                        add(bound, accessor.getKey(), type);
+                    }
+                }
+            }
+            return bound;
+        }
+
+        private static Map<String, List<String>> intern(Map<String, List<String>> accessors,
+                SymbolTable symbols) {
+            Map<String, List<String>> interned = new HashMap<String, List<String>>();
+            for (Map.Entry<String, List<String>> accessor : accessors.entrySet()) {
+                for (String type : accessor.getValue()) {
+                    add(interned, accessor.getKey(), symbols.intern(type));
+                }
+            }
+            return interned;
+        }
+
+        /**
+         * The canonical name
+         */
+        String getName() {
+            return name;
+        }
+
+        /**
+         * Hash of the source the class was read from, null if not known
+         */
+        String getHash() {
+            return hash;
+        }
+
+        /**
+         * The absolute path of the file the class was read from as a superclass, empty if it was extracted
+         */
+        String getSource() {
+            return source;
+        }
+
+        /**
+         * The names of the type parameters
+         */
+        List<String> getTypeParameters() {
+            return typeParameters;
+        }
+
+        /**
+         * The canonical name of the superclass without type arguments, null if it does not extend one
+         */
+        String getSuperclass() {
+            return superclass;
+        }
+
+        /**
+         * The canonical type arguments the class extends its superclass with, empty if it extends the raw
+         * class
+         */
+        List<String> getSuperclassArguments() {
+            return superclassArguments;
+        }
+
+        /**
+         * The canonical types of the declared fields by name, in declaration order
+         */
+        Map<String, String> getFields() {
+            return fields;
+        }
+
+        /**
+         * Whether the class declares the getter returning the type. Canonical names are interned, so they
+         * are compared by identity.
+         */
+        boolean hasGetter(String methodName, String type) {
+            return contains(getters.get(methodName), type);
+        }
+
+        /**
+         * Whether the class declares the setter taking the type
+         */
+        boolean hasSetter(String methodName, String type) {
+            return contains(setters.get(methodName), type);
+        }
+
+        private static boolean contains(List<String> types, String type) {
+            if (types != null) {
+                for (String declared : types) {
+                    if (declared == type) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        void writeTo(DataOutput out) throws IOException {
+            out.writeUTF(name);
+            out.writeUTF(hash == null ? "" : hash);
+            out.writeUTF(source);
+            writeTo(out, typeParameters);
+            out.writeUTF(superclass == null ? "" : superclass);
+            writeTo(out, superclassArguments);
+            out.writeInt(fields.size());
+            for (Map.Entry<String, String> field : fields.entrySet()) {
+                out.writeUTF(field.getKey());
+                out.writeUTF(field.getValue());
+            }
+            writeTo(out, getters);
+            writeTo(out, setters);
+        }
+
+        private static void writeTo(DataOutput out, Map<String, List<String>> accessors) throws IOException {
+            out.writeInt(accessors.size());
+            for (Map.Entry<String, List<String>> accessor : accessors.entrySet()) {
+                out.writeUTF(accessor.getKey());
+                writeTo(out, accessor.getValue());
+            }
+        }
+
+        private static void writeTo(DataOutput out, List<String> names) throws IOException {
+            out.writeInt(names.size());
+            for (String name : names) {
+                out.writeUTF(name);
+            }
+        }
+
+        static Type readFrom(DataInput in) throws IOException {
+            String name = in.readUTF();
+            String hash = in.readUTF();
+            String source = in.readUTF();
+            List<String> typeParameters = readNames(in);
+            String superclass = in.readUTF();
+            List<String> superclassArguments = readNames(in);
+            int count = in.readInt();
+            Map<String, String> fields = new LinkedHashMap<String, String>();
+            for (int i = 0; i < count; i++) {
+                fields.put(in.readUTF(), in.readUTF());
+            }
+            Map<String, List<String>> getters = readAccessors(in);
+            return new Type(name, hash, source, typeParameters, superclass.length() == 0 ? null : superclass,
+                    superclassArguments, fields, getters, readAccessors(in));
+        }
+
+        private static Map<String, List<String>> readAccessors(DataInput in) throws IOException {
+            int count = in.readInt();
+            Map<String, List<String>> accessors = new HashMap<String, List<String>>();
+            for (int i = 0; i < count; i++) {
+                accessors.put(in.readUTF(), readNames(in));
+            }
+            return accessors;
+        }
+
+        private static List<String> readNames(DataInput in) throws IOException {
+            int count = in.readInt();
+            List<String> names = new ArrayList<String>(count);
+            for (int i = 0; i < count; i++) {
+                names.add(in.readUTF());
+            }
+            return names;
+        }
+    }
+}
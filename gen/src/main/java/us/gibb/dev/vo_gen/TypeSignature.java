@@ -0,0 +1,139 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package us.gibb.dev.vo_gen;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The declarations of a type the class info is extracted from: the imports of its source, its type
+ * parameters, the class it extends, its fields in declaration order and the methods it declares directly
+ */
+public class TypeSignature {
+    private final String name;
+    private final List<String> imports = new ArrayList<String>();
+    private final List<String> typeParameters = new ArrayList<String>();
+    private final List<Field> fields = new ArrayList<Field>();
+    private final MemberIndex methods;
+    private String superclass;
+    private int typeCount;
+
+    /**
+     * @param typeCount number of types declared by the source file
+     */
+    public TypeSignature(String name, int typeCount, MemberIndex methods) {
+        this.name = name;
+        this.typeCount = typeCount;
+        this.methods = methods;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Number of types declared by the source file, only the first is generated from
+     */
+    public int getTypeCount() {
+        return typeCount;
+    }
+
+    void setTypeCount(int typeCount) {
+        this.typeCount = typeCount;
+    }
+
+    /**
+     * The single type imports and imports on demand of the source, ie "java.util.Date" and "java.util.*"
+     */
+    public List<String> getImports() {
+        return Collections.unmodifiableList(imports);
+    }
+
+    public void addImport(String imported) {
+        imports.add(imported);
+    }
+
+    /**
+     * The names of the type parameters, ie "T" for "Entity<T extends Serializable>"
+     */
+    public List<String> getTypeParameters() {
+        return Collections.unmodifiableList(typeParameters);
+    }
+
+    public void addTypeParameter(String name) {
+        typeParameters.add(name);
+    }
+
+    /**
+     * The class the type extends as it is declared, ie "BaseEntity<Long>", null if it does not extend one
+     */
+    public String getSuperclass() {
+        return superclass;
+    }
+
+    public void setSuperclass(String superclass) {
+        this.superclass = superclass;
+    }
+
+    public List<Field> getFields() {
+        return Collections.unmodifiableList(fields);
+    }
+
+    /**
+     * @param type the declared type as JavaParser prints it, ie "Map<String, Date>"
+     */
+    public void addField(String fieldName, String type) {
+        fields.add(new Field(fieldName, type));
+    }
+
+    public MemberIndex getMethods() {
+        return methods;
+    }
+
+    @Override
+    public String toString() {
+        return name+(typeParameters.isEmpty() ? "" : typeParameters.toString())+(superclass == null ? ""
+                : " extends "+superclass)+imports+fields;
+    }
+
+    public static class Field {
+        private final String name;
+        private final String type;
+
+        Field(String name, String type) {
+            this.name = name;
+            this.type = type;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        @Override
+        public String toString() {
+            return type+" "+name;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package us.gibb.dev.vo_gen;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URL;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Decides without reading a source whether the previous generation is still up to date. The settings and
+ * the names, sizes and modification times of the files in the package directories and of the superclasses
+ * the last generation read from outside of them are hashed, and the hash of the last successful generation
+ * is kept in the marker directory. Neither the manifest nor anything of the parser or the emitter is
+ * loaded, so an up to date build costs a few directory listings.
+ */
+public class UpToDateCheck {
+    static final String FILE_NAME = "vo-gen.inputs";
+
+    private final File markerDirectory;
+    private final StringBuilder inputs = new StringBuilder(4096);
+    private final List<File> manifests = new ArrayList<File>();
+    private boolean missing;
+    private String hash;
+
+    /**
+     * @param markerDirectory where the hash of the last generation is kept
+     */
+    public UpToDateCheck(File markerDirectory) {
+        this.markerDirectory = markerDirectory;
+        // a new version of the generator generates again
+        CodeSource source = VOGen.class.getProtectionDomain().getCodeSource();
+        URL location = source == null ? null : source.getLocation();
+        addSetting("generator", location);
+        if (location != null && "file".equals(location.getProtocol())) {
+            addFile(FileUtils.toFile(location));
+        }
+    }
+
+    /**
+     * Adds a setting of the generation, arrays are added by their elements
+     */
+    public UpToDateCheck addSetting(String name, Object value) {
+        inputs.append(name).append('=');
+        if (value instanceof Object[]) {
+            inputs.append(Arrays.toString((Object[]) value));
+        } else {
+            inputs.append(value);
+        }
+        inputs.append('\n');
+        return this;
+    }
+
+    /**
+     * Adds the files in the directories of the packages below the root, and in their subdirectories when
+     * recursive
+     */
+    public UpToDateCheck addPackages(File root, String[] packages, boolean recursive) {
+        if (packages == null) {
+            return this;
+        }
+        for (String packageName : packages) {
+            addDirectory(new File(root, packageName.replace('.', '/')), recursive);
+        }
+        return this;
+    }
+
+    /**
+     * Adds a file, or that it is missing
+     */
+    public UpToDateCheck addFile(File file) {
+        append(inputs, file);
+        return this;
+    }
+
+    private static void append(StringBuilder buf, File file) {
+        buf.append(file.getAbsolutePath());
+        if (file.isFile()) {
+            buf.append(' ').append(file.length()).append(' ').append(file.lastModified());
+        }
+        buf.append('\n');
+    }
+
+    /**
+     * Adds the superclass sources the generation whose manifest is kept in the directory read from outside
+     * of its packages. They are taken from the list the manifest of the last generation was saved with
+     * when checking and from the one just written when saving.
+     */
+    public UpToDateCheck addSuperclasses(File manifestDirectory) {
+        manifests.add(manifestDirectory);
+        return this;
+    }
+
+    /**
+     * Requires an output of the previous generation, which is generated again if it was removed
+     */
+    public UpToDateCheck addOutput(File output) {
+        if (!output.exists()) {
+            missing = true;
+        }
+        return this;
+    }
+
+    private void addDirectory(File directory, boolean recursive) {
+        inputs.append(directory.getAbsolutePath()).append('/');
+        File[] files = directory.listFiles();
+        if (files == null) {
+            inputs.append(" missing\n");
+            return;
+        }
+        inputs.append('\n');
+        // the order of a listing is not specified
+        Arrays.sort(files);
+        for (File file : files) {
+            if (file.isDirectory()) {
+                if (recursive) {
+                    addDirectory(file, true);
+                }
+            } else {
+                addFile(file);
+            }
+        }
+    }
+
+    /**
+     * Whether the inputs are the same as those of the last successful generation and its outputs exist
+     */
+    public boolean isUpToDate() throws IOException {
+        File file = new File(markerDirectory, FILE_NAME);
+        return !missing && file.isFile() && FileUtils.readFileToString(file, "UTF-8").equals(hash());
+    }
+
+    /**
+     * Records the inputs after a successful generation. The files of the packages are listed before
+     * generating, so a file changed while generating is generated again by the next build.
+     */
+    public void save() throws IOException {
+        FileUtils.writeStringToFile(new File(markerDirectory, FILE_NAME), hash(superclasses()), "UTF-8");
+    }
+
+    private String hash() throws IOException {
+        if (hash == null) {
+            hash = hash(superclasses());
+        }
+        return hash;
+    }
+
+    private String hash(String superclasses) {
+        try {
+            return Manifest.hash((inputs+superclasses).getBytes("UTF-8"));
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The superclass sources listed next to the manifests
+     */
+    private String superclasses() throws IOException {
+        StringBuilder buf = new StringBuilder();
+        for (File dir : manifests) {
+            File file = new File(dir, Manifest.SUPERCLASSES_FILE_NAME);
+            if (!file.isFile()) {
+                continue;
+            }
+            for (Object source : FileUtils.readLines(file, OutputSink.ENCODING)) {
+                if (((String) source).length() > 0) {
+                    append(buf, new File((String) source));
+                }
+            }
+        }
+        return buf.toString();
+    }
+}
@@ -19,33 +19,39 @@
 
 package us.gibb.dev.vo_gen;
 
-import japa.parser.JavaParser;
 import japa.parser.ast.CompilationUnit;
-import japa.parser.ast.body.BodyDeclaration;
-import japa.parser.ast.body.FieldDeclaration;
-import japa.parser.ast.body.MethodDeclaration;
-import japa.parser.ast.body.TypeDeclaration;
-import japa.parser.ast.body.VariableDeclarator;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-import org.apache.commons.collections.MapUtils;
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
-import org.apache.velocity.VelocityContext;
-import org.apache.velocity.app.Velocity;
-import org.apache.velocity.app.VelocityEngine;
 
 /**
  */
 public class VOGen {
+    /**
+     * Number of slowest source files kept in the report
+     */
+    private static final int SLOWEST_SOURCES = 10;
+
+    /**
+     * Render buffers that grew beyond this many chars are dropped instead of kept for the next render
+     */
+    private static final int MAX_BUFFER = 256 * 1024;
+
     private Log log = new JavaUtilLog(VOGen.class);
     /**
      * Path where the generated sources should be placed
@@ -62,6 +68,7 @@ public class VOGen {
     private String packages[];
 
     /**
+     * Patterns of the classes to generate from, all if empty
      */
     private String classes[];
 
@@ -69,17 +76,80 @@ public class VOGen {
      */
     private File srcDir;
 
+    /**
+     * Compiled classes to generate from instead of the sources, null to read the sources
+     */
+    private File classesDirectory;
+
+    /**
+     * Jars whose classes are generated from instead of the sources
+     */
+    private File jars[];
+
+    /**
+     * Whether the subpackages of the packages are generated as well
+     */
+    private boolean recursive;
+
+    /**
+     * Globs of the source files to read relative to the source directory, all if empty
+     */
+    private String includes[];
+
+    /**
+     * Globs of the source files not to read relative to the source directory
+     */
+    private String excludes[];
+
     /**
      */
     private String defaultPackage;
-    private VelocityEngine ve;
+
+    /**
+     * Number of parse and render threads, 0 uses the number of available processors
+     */
+    private int threads;
+
+    /**
+     * Where the manifest of the previous generation is kept, null to always generate everything
+     */
+    private File markerDirectory;
+
+    /**
+     * Where the class infos extracted from the sources are cached, null to parse every changed source
+     */
+    private File cacheDirectory;
+
+    /**
+     * Leave files whose content did not change untouched
+     */
+    private boolean writeIfChanged;
+
+    /**
+     * Writes the sources, the Velocity templates when null
+     */
+    private Emitter emitter;
+
+    /**
+     * Reads the sources, JavaParser by default. Created when first needed so an up to date build does not
+     * load the parser.
+     */
+    private FrontEnd frontEnd;
+
+    /**
+     * Buffer each render thread emits into
+     */
+    private final ThreadLocal<StringBuilder> buffers = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(8192);
+        }
+    };
     
+    /**
+     * The Velocity engine is only initialized once something is rendered
+     */
     public VOGen() throws Exception {
-        ve = new VelocityEngine();
-        ve.addProperty(Velocity.RESOURCE_LOADER, "class");
-        ve.addProperty("class.resource.loader.description", "Velocity Classpath Resource Loader");
-        ve.addProperty("class.resource.loader.class", "org.apache.velocity.runtime.resource.loader.ClasspathResourceLoader");
-        ve.init();
     }
 
     public Log getLog() {
@@ -118,6 +188,10 @@ public class VOGen {
         return classes;
     }
 
+    /**
+     * Only generates from the classes matching one of the patterns, ie "User", "*Entity" or
+     * "us.gibb.model.**". Sources are selected by file name before they are read.
+     */
     public void setClasses(String[] classes) {
         this.classes = classes;
     }
@@ -130,6 +204,71 @@ public class VOGen {
         this.srcDir = javaRoot;
     }
 
+    public File getClassesDirectory() {
+        return classesDirectory;
+    }
+
+    /**
+     * Generates from the class files in the directory instead of the sources of the source directory. The
+     * class files are read without loading the classes.
+     */
+    public void setClassesDirectory(File classesDirectory) {
+        this.classesDirectory = classesDirectory;
+    }
+
+    public File[] getJars() {
+        return jars;
+    }
+
+    /**
+     * Generates from the class files in the jars instead of the sources of the source directory, ie the
+     * model classes of a dependency that only ships binaries
+     */
+    public void setJars(File[] jars) {
+        this.jars = jars;
+    }
+
+    /**
+     * Whether the classes are read from class files rather than sources
+     */
+    public boolean isBytecode() {
+        return classesDirectory != null || (jars != null && jars.length > 0);
+    }
+
+    public boolean isRecursive() {
+        return recursive;
+    }
+
+    /**
+     * Also generates the subpackages of the packages, found by walking their directories
+     */
+    public void setRecursive(boolean recursive) {
+        this.recursive = recursive;
+    }
+
+    public String[] getIncludes() {
+        return includes;
+    }
+
+    /**
+     * Only reads the source files matching one of the globs, ie "**&#47;model/*.java". Matched against the
+     * path relative to the source directory before a file is opened.
+     */
+    public void setIncludes(String[] includes) {
+        this.includes = includes;
+    }
+
+    public String[] getExcludes() {
+        return excludes;
+    }
+
+    /**
+     * Does not read the source files matching one of the globs, ie "**&#47;*Test.java"
+     */
+    public void setExcludes(String[] excludes) {
+        this.excludes = excludes;
+    }
+
     public String getDefaultPackage() {
         return defaultPackage;
     }
@@ -138,134 +277,445 @@ public class VOGen {
         this.defaultPackage = converterPackage;
     }
 
-    public void generate() throws GenerationException {
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Number of threads used by each of the parse and render stages, defaults to the number of available
+     * processors
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public File getMarkerDirectory() {
+        return markerDirectory;
+    }
+
+    /**
+     * Directory in which the manifest of the previous generation is kept, when set only new and changed
+     * sources are parsed and rendered
+     */
+    public void setMarkerDirectory(File markerDirectory) {
+        this.markerDirectory = markerDirectory;
+    }
+
+    public File getCacheDirectory() {
+        return cacheDirectory;
+    }
+
+    /**
+     * Directory in which the class infos of the sources are cached by content, when set sources that were
+     * parsed before are not parsed again even if their VOs were removed
+     */
+    public void setCacheDirectory(File cacheDirectory) {
+        this.cacheDirectory = cacheDirectory;
+    }
+
+    public Emitter getEmitter() {
+        return emitter != null ? emitter : VelocityEmitter.shared();
+    }
+
+    /**
+     * @see Emitters
+     */
+    public void setEmitter(Emitter emitter) {
+        this.emitter = emitter;
+    }
+
+    public FrontEnd getFrontEnd() {
+        if (frontEnd == null) {
+            frontEnd = new JavaParserFrontEnd();
+        }
+        return frontEnd;
+    }
+
+    /**
+     * @see FrontEnds
+     */
+    public void setFrontEnd(FrontEnd frontEnd) {
+        this.frontEnd = frontEnd;
+    }
+
+    public boolean isWriteIfChanged() {
+        return writeIfChanged;
+    }
+
+    /**
+     * Only write generated files whose content differs from the existing file and remove the files that
+     * were not generated instead of cleaning the output directory, so unchanged files keep their
+     * modification time
+     */
+    public void setWriteIfChanged(boolean writeIfChanged) {
+        this.writeIfChanged = writeIfChanged;
+    }
+
+    /**
+     * The settings of this generator as a request, which later changes to the settings do not affect
+     */
+    public GenerationRequest toRequest() {
+        return GenerationRequest.builder().srcDir(srcDir).packages(packages).classes(classes).recursive(
+                recursive).includes(includes).excludes(excludes).classesDirectory(classesDirectory).jars(jars)
+                .defaultPackage(defaultPackage).outDir(outDir).testOption(testOption).threads(threads)
+                .markerDirectory(markerDirectory).cacheDirectory(cacheDirectory).writeIfChanged(writeIfChanged)
+                .emitter(emitter).frontEnd(getFrontEnd()).log(log).build();
+    }
+
+    /**
+     * Generates into the output directory
+     */
+    public GenerationReport generate() throws GenerationException {
+        return generate(toRequest());
+    }
+
+    /**
+     * Generates without touching the disk, returns the sources by path relative to the output root
+     */
+    public Map<String, CharSequence> generateInMemory() throws GenerationException {
+        MemorySink sink = new MemorySink();
+        generate(toRequest(), sink);
+        return sink.getSources();
+    }
+
+    /**
+     * Generates into the sink, returns the time and memory spent in each phase
+     */
+    public GenerationReport generate(OutputSink sink) throws GenerationException {
+        return generate(toRequest(), sink);
+    }
+
+    /**
+     * Generates every group into its own output directory in one pass, see
+     * {@link #generate(GenerationRequest, List)}
+     */
+    public List<GenerationReport> generate(List<GenerationGroup> groups) throws GenerationException {
+        return generate(toRequest(), groups);
+    }
 
+    /**
+     * Generates the request into its output directory. Only reads the request, so requests of concurrent
+     * builds can be generated at the same time.
+     */
+    public GenerationReport generate(GenerationRequest request) throws GenerationException {
+        return generate(request, new FileSystemSink(request.getOutDir(), request.isWriteIfChanged(), request
+                .getLog()));
+    }
+
+    /**
+     * Generates the request into the sink, returns the time and memory spent in each phase. Thread safe.
+     */
+    public GenerationReport generate(GenerationRequest request, OutputSink sink) throws GenerationException {
+        request.getLog().info("classpath: "+ System.getProperty("java.class.path"));
+        GenerationPipeline.Pools pools = new GenerationPipeline.Pools(request.getPoolSize());
         try {
-            log.info("classpath: "+ System.getProperty("java.class.path"));
-            if (outDir.exists()) {
-                FileUtils.cleanDirectory(outDir);
+            return generate(request, sink, pools, new StringPool(), null);
+        } finally {
+            // cleanup as much as we can.
+            pools.shutdownNow();
+        }
+    }
+
+    /**
+     * Generates every group into its own output directory in one pass. The groups run at the same time and
+     * share the emitter, the parse and render threads, the pooled class infos and the index of the classes,
+     * so a class may extend a class of another group. All other settings are taken from the request.
+     * Returns the report of every group, none if there are no groups. Thread safe.
+     */
+    public List<GenerationReport> generate(GenerationRequest request, List<GenerationGroup> groups)
+            throws GenerationException {
+        if (groups.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Set<File> outDirs = new HashSet<File>();
+        for (GenerationGroup group : groups) {
+            if (group.getOutDir() == null || !outDirs.add(group.getOutDir().getAbsoluteFile())) {
+                throw new GenerationException(new IllegalArgumentException("Every group needs its own outDir: "
+                        +group));
             }
-            for (String packageName : packages) {
-                
-                File directory = new File(srcDir, packageName.replace('.', '/'));
-                log.info("src: "+directory);
-                
-                Map<String, Object> ctxt = new HashMap<String, Object>();
-                ctxt.put("defaultPackage", defaultPackage);
-                
-                Collection<File> javaFiles = getJavaFiles(directory);
-                LinkedHashMap<String, Map<String, Object>> classInfos = new LinkedHashMap<String, Map<String, Object>>();
-                ctxt.put("classes", classInfos);
-                
-                for (File file : javaFiles) {
-                    CompilationUnit cu = JavaParser.parse(file);
-
-                    if (cu.getTypes() != null && !cu.getTypes().isEmpty()) {
-                        if (cu.getTypes().size() > 1) {
-                            log.warn("Unable to handle {0} types in {1}", cu.getTypes().size(), file.getAbsolutePath());
-                        }
-                        
-                        TypeDeclaration type = cu.getTypes().get(0);
-                        
-                        Map<String, Object> info = new HashMap<String, Object>();
-                        classInfos.put(packageName+"."+type.getName(), info);
-                        info.put("name", type.getName());
-                        info.put("packageName", packageName);
-                        String newPackage = packageName+".vo";
-                        info.put("newPackage", newPackage);
-                        String newName = type.getName()+"VO";
-                        info.put("newName", newName);
-                        info.put("newPackageDir", newPackage.replace('.', '/'));
-                        info.put("newFileName", newName+".java");
-                        
-                        LinkedHashMap<String, Map<String, String>> fields = new LinkedHashMap<String, Map<String, String>>();
-                        info.put("fields", fields);
-                        for (BodyDeclaration member : type.getMembers()) {
-                            if (member instanceof FieldDeclaration) {
-                                FieldDeclaration fieldDecl = (FieldDeclaration) member;
-                                List<VariableDeclarator> variables = fieldDecl.getVariables();
-                                for (VariableDeclarator var : variables) {
-                                    Map<String, String> field = new HashMap<String, String>();
-                                    String name = var.getId().getName();
-                                    field.put("name", name);
-                                    String fieldType = fieldDecl.getType().toString();
-                                    field.put("type", fieldType);
-                                    String getter = "get"+StringUtils.capitalize(name);
-                                    if (fieldType.equals("boolean")) {
-                                        getter = "is"+StringUtils.capitalize(name);
-                                    }
-                                    field.put("getter", getter);
-                                    String setter = "set"+StringUtils.capitalize(name);
-                                    field.put("setter", setter);
-                                    //TODO: only put if has getter and setter method
-                                    boolean hasGetter = hasMethod(getter, type, fieldType, null);
-                                    boolean hasSetter = hasMethod(setter, type, "void", fieldType);
-                                    if (hasGetter && hasSetter) {
-                                        fields.put(name+":"+fieldType, field);
-                                    }
-                                }
-                            }
-                        }
+        }
+        int poolSize = request.getPoolSize();
+        final GenerationPipeline.Pools pools = new GenerationPipeline.Pools(poolSize);
+        final StringPool strings = new StringPool();
+        List<File> srcDirs = new ArrayList<File>();
+        for (GenerationGroup group : groups) {
+            if (group.getSrcDir() != null) {
+                srcDirs.add(group.getSrcDir());
+            }
+        }
+        final TypeIndex types = new TypeIndex(new SymbolTable(srcDirs.toArray(new File[srcDirs.size()])),
+                request.getFrontEnd(), srcDirs, SourceWalker.SUFFIX, request.getLog());
+        ExecutorService runners = Executors.newFixedThreadPool(Math.min(groups.size(), poolSize),
+                new GenerationPipeline.StageThreadFactory("vo-gen-group"));
+        try {
+            List<Future<GenerationReport>> reports = new ArrayList<Future<GenerationReport>>();
+            for (int i = 0; i < groups.size(); i++) {
+                final GenerationRequest group = forGroup(request, groups.get(i), i);
+                reports.add(runners.submit(new Callable<GenerationReport>() {
+                    public GenerationReport call() throws Exception {
+                        return generate(group, new FileSystemSink(group.getOutDir(), group.isWriteIfChanged(),
+                                group.getLog()), pools, strings, types);
                     }
+                }));
+            }
+            List<GenerationReport> results = new ArrayList<GenerationReport>();
+            GenerationException failure = null;
+            for (Future<GenerationReport> report : reports) {
+                try {
+                    results.add(report.get());
+                } catch (ExecutionException e) {
+                    // the other groups are still written
+                    if (failure == null) {
+                        failure = e.getCause() instanceof GenerationException ? (GenerationException) e
+                                .getCause() : new GenerationException(e.getCause());
+                    }
+                } catch (InterruptedException e) {
+                    throw new GenerationException(e);
                 }
-                MapUtils.verbosePrint(System.out, "ctxt", ctxt);
-                                
-                for (Map<String, Object> classInfo : classInfos.values()) {
-                    write("templates/VO.vm", classInfo, getFile((String) classInfo.get("newPackageDir"), (String) classInfo.get("newFileName")));
-                }
-                
-                write("templates/VOs.vm", ctxt, getFile(defaultPackage.replace('.', '/'), "VO.java"));
             }
+            if (failure != null) {
+                throw failure;
+            }
+            return results;
         } catch (Exception e) {
-            log.error(e);
+            if (e instanceof GenerationException) {
+                throw (GenerationException) e;
+            }
             throw new GenerationException(e);
         } finally {
-            // cleanup as much as we can.
+            runners.shutdownNow();
+            pools.shutdownNow();
         }
     }
 
-    private boolean hasMethod(String methodName, TypeDeclaration type, String returnType, String paramType) {
-        for (BodyDeclaration member : type.getMembers()) {
-            if (member instanceof MethodDeclaration) {
-                MethodDeclaration method = (MethodDeclaration) member;
-                if (method.getName().equals(methodName)) {
-                    // check return type
-                    if (method.getType() == null || !method.getType().toString().equals(returnType)) {
-                        continue;
-                    }
+    /**
+     * The request of a group with the other settings of the batch
+     */
+    private static GenerationRequest forGroup(GenerationRequest request, GenerationGroup group, int index) {
+        File markerDirectory = group.getMarkerDirectory();
+        if (markerDirectory == null && request.getMarkerDirectory() != null) {
+            markerDirectory = new File(request.getMarkerDirectory(), String.valueOf(index));
+        }
+        File cacheDirectory = null;
+        if (request.getCacheDirectory() != null) {
+            cacheDirectory = new File(request.getCacheDirectory(), String.valueOf(index));
+        }
+        return request.toBuilder().srcDir(group.getSrcDir()).packages(group.getPackages()).defaultPackage(
+                group.getDefaultPackage()).outDir(group.getOutDir()).markerDirectory(markerDirectory)
+                .cacheDirectory(cacheDirectory).classesDirectory(null).jars((File[]) null).build();
+    }
 
-                    // check param type
-                    if (paramType == null && (method.getParameters() == null || method.getParameters().isEmpty())) {
-                        return true;
-                    }
-                    if (paramType != null && method.getParameters() != null && 
-                            method.getParameters().size() == 1 &&
-                            method.getParameters().get(0).getType().toString().equals(paramType)) 
-                    {
-                        return true;
-                    }
-                }
+    private GenerationReport generate(GenerationRequest request, OutputSink sink, GenerationPipeline.Pools pools,
+            StringPool strings, TypeIndex types) throws GenerationException {
+        try {
+            File markerDirectory = request.getMarkerDirectory();
+            Manifest previous = null;
+            Manifest current = null;
+            if (markerDirectory != null) {
+                previous = Manifest.load(markerDirectory, request.getLog());
+                current = new Manifest();
+            }
+            GenerationReport report = generate(request, sink, previous, current, null, pools, strings, types);
+            if (current != null) {
+                current.save(markerDirectory);
+            }
+            return report;
+        } catch (Exception e) {
+            request.getLog().error(e);
+            throw new GenerationException(e);
+        }
+    }
+
+    /**
+     * Generates into the sink from the previous manifest, which is not saved
+     * 
+     * @param previous manifest of the previous generation, null for a full generation
+     * @param current collects the manifest of this generation, null if none is kept
+     * @param changed the sources changed since the previous generation relative to the source directory, the
+     *        others are taken from the previous manifest without being read. Null if not known.
+     */
+    GenerationReport generate(GenerationRequest request, OutputSink sink, Manifest previous, Manifest current,
+            Set<String> changed) throws Exception {
+        GenerationPipeline.Pools pools = new GenerationPipeline.Pools(request.getPoolSize());
+        try {
+            return generate(request, sink, previous, current, changed, pools, new StringPool(), null);
+        } finally {
+            pools.shutdownNow();
+        }
+    }
+
+    /**
+     * @param types the index shared by the groups of a batch, null to index the request only
+     */
+    private GenerationReport generate(GenerationRequest request, OutputSink sink, Manifest previous,
+            Manifest current, Set<String> changed, GenerationPipeline.Pools pools, StringPool strings,
+            TypeIndex types) throws Exception {
+        long start = System.nanoTime();
+        GenerationReport report = new GenerationReport(SLOWEST_SOURCES);
+        sink.start(previous != null);
+        GenerationPipeline pipeline = new GenerationPipeline(this, request, pools, strings, types, sink,
+                previous, current, report);
+        pipeline.setChanged(changed);
+        ClassCache cache = null;
+        File cacheDirectory = request.getCacheDirectory();
+        if (cacheDirectory != null) {
+            cache = ClassCache.open(cacheDirectory, request.getLog());
+            pipeline.setCache(cache);
+        }
+        try {
+            pipeline.run(request.getPackages());
+
+            if (previous != null) {
+                removeStale(previous, pipeline.getOutputs(), sink);
+            }
+            sink.finish(pipeline.getOutputs());
+        } catch (Exception e) {
+            sink.abort();
+            throw e;
+        }
+        if (cache != null) {
+            cache.save(cacheDirectory);
+        }
+        report.setWallNanos(System.nanoTime() - start);
+        request.getLog().info("Generated "+report);
+        return report;
+    }
+
+    /**
+     * Removes the VOs of sources that were removed, are no longer selected or no longer declare the same
+     * type, and the converter if it moved to another package
+     */
+    private void removeStale(Manifest previous, Set<String> outputs, OutputSink sink) throws IOException {
+        for (String output : previous.getOutputs()) {
+            if (!outputs.contains(output)) {
+                sink.remove(output);
+            }
+        }
+    }
+
+    /**
+     * Reads a source file with the front end and extracts the class info used by the templates, returns
+     * null if the file does not declare a type
+     */
+    ClassInfo extract(String packageName, File file, byte[] content) throws Exception {
+        return extract(packageName, file, getFrontEnd().read(file, content));
+    }
+
+    ClassInfo extract(String packageName, File file, CompilationUnit cu) {
+        return extract(packageName, file, JavaParserFrontEnd.signature(cu));
+    }
+
+    ClassInfo extract(String packageName, File file, TypeSignature type) {
+        return extract(packageName, file, type, log, new TypeIndex(new SymbolTable(srcDir)));
+    }
+
+    /**
+     * @param log where a source declaring several types is reported
+     * @param types resolves the types of the fields and accessors and the properties the class inherits,
+     *        shared by the sources of a generation. The class is added to it.
+     */
+    ClassInfo extract(String packageName, File file, TypeSignature type, Log log, TypeIndex types) {
+        return extract(packageName, file, type, log, types, null);
+    }
+
+    /**
+     * @param hash of the source, recorded with the class in the index
+     */
+    ClassInfo extract(String packageName, File file, TypeSignature type, Log log, TypeIndex types,
+            String hash) {
+        if (type == null) {
+            return null;
+        }
+        if (type.getTypeCount() > 1) {
+            log.warn("Unable to handle {0} types in {1}", type.getTypeCount(), file.getAbsolutePath());
+        }
+        return extract(packageName, type.getName(), types.hierarchy(types.add(packageName, type, hash)));
+    }
+
+    /**
+     * The properties of a class are the fields of the class and its superclasses, those of the topmost
+     * superclass first, with a getter and a setter declared by any of them
+     * 
+     * @param hierarchy the indexed class followed by its superclasses
+     */
+    static ClassInfo extract(String packageName, String name, List<TypeIndex.Type> hierarchy) {
+        Map<String, String> properties = new LinkedHashMap<String, String>();
+        for (int i = hierarchy.size() - 1; i >= 0; i--) {
+            // a field hiding one of a superclass keeps its place
+            properties.putAll(hierarchy.get(i).getFields());
+        }
+        SymbolTable.Imports imports = new SymbolTable.Imports(ClassInfo.newPackage(packageName), ClassInfo
+                .newName(name));
+        imports.add("java.io.Serializable");
+        List<FieldInfo> fields = new ArrayList<FieldInfo>();
+        for (Map.Entry<String, String> property : properties.entrySet()) {
+            String fieldName = property.getKey();
+            String fieldType = property.getValue();
+            String getter = "get"+StringUtils.capitalize(fieldName);
+            if (fieldType.equals("boolean")) {
+                getter = "is"+StringUtils.capitalize(fieldName);
+            }
+            String setter = "set"+StringUtils.capitalize(fieldName);
+            if (hasGetter(hierarchy, getter, fieldType) && hasSetter(hierarchy, setter, fieldType)) {
+                fields.add(new FieldInfo(fieldName, imports.print(fieldType), getter, setter));
+            }
+        }
+        return new ClassInfo(name, packageName, fields, imports.getImports());
+    }
+
+    private static boolean hasGetter(List<TypeIndex.Type> hierarchy, String getter, String type) {
+        for (TypeIndex.Type declaring : hierarchy) {
+            if (declaring.hasGetter(getter, type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasSetter(List<TypeIndex.Type> hierarchy, String setter, String type) {
+        for (TypeIndex.Type declaring : hierarchy) {
+            if (declaring.hasSetter(setter, type)) {
+                return true;
             }
         }
         return false;
     }
 
-    private File getFile(String pkgName, String fileName) throws IOException {
-        File pkg = new File(outDir, pkgName);
-        FileUtils.forceMkdir(pkg);
-        File file = new File(pkg, fileName);
-        return file;
+    String renderVO(ClassInfo info) throws Exception {
+        return renderVO(getEmitter(), info);
+    }
+
+    String renderVO(Emitter emitter, ClassInfo info) throws Exception {
+        StringBuilder out = buffer();
+        emitter.emitVO(info, out);
+        return release(out);
     }
 
-    private void write(String template, Map<?, ?> ctxt, File out) throws Exception {
-        VelocityContext velocityContext = new VelocityContext(ctxt);
-        FileWriter writer = new FileWriter(out);
-        ve.mergeTemplate(template, "UTF-8", velocityContext, writer);
-        writer.close();
+    String renderConverter(Collection<ClassInfo> classes) throws Exception {
+        return renderConverter(getEmitter(), defaultPackage, classes);
     }
 
-    @SuppressWarnings("unchecked")
-    private Collection<File> getJavaFiles(File directory) {
-        return FileUtils.listFiles(directory, new String[]{"java"}, false);
+    String renderConverter(Emitter emitter, String defaultPackage, Collection<ClassInfo> classes)
+            throws Exception {
+        StringBuilder out = buffer();
+        emitter.emitConverter(defaultPackage, classes, out);
+        return release(out);
+    }
+
+    private StringBuilder buffer() {
+        StringBuilder out = buffers.get();
+        out.setLength(0);
+        return out;
+    }
+
+    /**
+     * Returns the rendered source, a buffer grown by a huge converter is not kept for the rest of the run
+     */
+    private String release(StringBuilder out) {
+        String content = out.toString();
+        if (out.capacity() > MAX_BUFFER) {
+            buffers.remove();
+        }
+        return content;
     }
 }
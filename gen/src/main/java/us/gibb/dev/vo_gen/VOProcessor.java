@@ -0,0 +1,305 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package us.gibb.dev.vo_gen;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.TypeVariable;
+import javax.lang.model.type.WildcardType;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Generates the VOs of the classes marked with {@link GenerateVO} while javac compiles them. The class infos
+ * are built from the elements javac already parsed and attributed, so the sources are not parsed again,
+ * and the VOs are written through the Filer so they take part in incremental compilation.
+ * <p>
+ * The converter is written to the package given by the "vo.converterPackage" option once every marked
+ * class has been seen, no converter is written without it. The marked classes are listed in
+ * META-INF/vo-gen/&lt;converter package&gt; of the class output, so a build recompiling only some of them
+ * still converts the others, as long as their classes are found. The "vo.emitter" option picks the emitter
+ * like the emitter parameter of the mojo, "java" by default as the templates would have to be found on the
+ * processor path.
+ */
+@SupportedAnnotationTypes("us.gibb.dev.vo_gen.GenerateVO")
+@SupportedOptions({VOProcessor.CONVERTER_PACKAGE, VOProcessor.EMITTER})
+public class VOProcessor extends AbstractProcessor {
+    public static final String CONVERTER_PACKAGE = "vo.converterPackage";
+    public static final String EMITTER = "vo.emitter";
+    static final String CLASS_LIST = "META-INF/vo-gen/";
+
+    /**
+     * Created once a marked class is found, so compiling without any does not set up an emitter
+     */
+    private VOGen gen;
+
+    /**
+     * The class infos of every marked class of the compilation, by qualified name
+     */
+    private final Map<String, ClassInfo> classes = new TreeMap<String, ClassInfo>();
+    private final List<Element> originatingElements = new ArrayList<Element>();
+    /**
+     * The classes compiled, a listed class compiled without the annotation is no longer converted
+     */
+    private final Set<String> compiled = new HashSet<String>();
+    /**
+     * The marked classes and their superclasses, indexed from their elements
+     */
+    private final TypeIndex types = new TypeIndex(new SymbolTable());
+    private final Set<String> indexed = new HashSet<String>();
+    private boolean converterWritten;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        try {
+            boolean found = false;
+            for (Element element : roundEnv.getRootElements()) {
+                if (element instanceof TypeElement) {
+                    compiled.add(((TypeElement) element).getQualifiedName().toString());
+                }
+            }
+            for (Element element : roundEnv.getElementsAnnotatedWith(GenerateVO.class)) {
+                if (element.getKind() != ElementKind.CLASS
+                        || ((TypeElement) element).getNestingKind() != NestingKind.TOP_LEVEL) {
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                            "@GenerateVO is only supported on top level classes", element);
+                    continue;
+                }
+                generateVO((TypeElement) element);
+                found = true;
+            }
+            // the converter is written in the round after the last marked classes were found
+            if (!found && !classes.isEmpty() && !converterWritten) {
+                generateConverter();
+            }
+        } catch (Exception e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to generate VOs: "+e);
+        }
+        return true;
+    }
+
+    private void generateVO(TypeElement type) throws Exception {
+        ClassInfo info = extract(type);
+        write(info.getNewPackage()+"."+info.getNewName(), gen.renderVO(info), type);
+        originatingElements.add(type);
+    }
+
+    private ClassInfo extract(TypeElement type) throws Exception {
+        String qualifiedName = type.getQualifiedName().toString();
+        String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        indexSuperclasses(type);
+        ClassInfo info = gen().extract(packageName, new File(qualifiedName.replace('.', '/')+".java"),
+                signature(type), gen.getLog(), types);
+        classes.put(qualifiedName, info);
+        return info;
+    }
+
+    /**
+     * Adds the superclasses of the class that were not indexed yet, javac already attributed them
+     */
+    private void indexSuperclasses(TypeElement type) {
+        TypeMirror superclass = type.getSuperclass();
+        while (superclass.getKind() == TypeKind.DECLARED) {
+            TypeElement element = (TypeElement) ((DeclaredType) superclass).asElement();
+            String name = element.getQualifiedName().toString();
+            if (name.equals("java.lang.Object") || !indexed.add(name)) {
+                return;
+            }
+            types.add(processingEnv.getElementUtils().getPackageOf(element).getQualifiedName().toString(),
+                    signature(element), null);
+            superclass = element.getSuperclass();
+        }
+    }
+
+    private void generateConverter() throws Exception {
+        converterWritten = true;
+        String converterPackage = processingEnv.getOptions().get(CONVERTER_PACKAGE);
+        if (converterPackage == null) {
+            return;
+        }
+        // the classes marked in a previous build and not compiled now, their VOs are still there
+        for (String name : readClassList(converterPackage)) {
+            if (!classes.containsKey(name) && !compiled.contains(name)) {
+                TypeElement type = processingEnv.getElementUtils().getTypeElement(name);
+                if (type != null) {
+                    extract(type);
+                }
+            }
+        }
+        Element[] originating = originatingElements.toArray(new Element[originatingElements.size()]);
+        gen.setDefaultPackage(converterPackage);
+        write(converterPackage+".VO", gen.renderConverter(classes.values()), originating);
+        FileObject list = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
+                CLASS_LIST+converterPackage, originating);
+        Writer out = list.openWriter();
+        try {
+            for (String name : classes.keySet()) {
+                out.write(name);
+                out.write('\n');
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * The classes listed by the previous build, none if there was none
+     */
+    private List<String> readClassList(String converterPackage) {
+        List<String> names = new ArrayList<String>();
+        try {
+            FileObject list = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "",
+                    CLASS_LIST+converterPackage);
+            BufferedReader in = new BufferedReader(list.openReader(true));
+            try {
+                String name;
+                while ((name = in.readLine()) != null) {
+                    if (name.length() > 0) {
+                        names.add(name);
+                    }
+                }
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            // not written yet
+        }
+        return names;
+    }
+
+    private VOGen gen() throws Exception {
+        if (gen == null) {
+            String emitter = processingEnv.getOptions().get(EMITTER);
+            gen = new VOGen();
+            gen.setEmitter(Emitters.forName(emitter == null ? Emitters.JAVA : emitter));
+        }
+        return gen;
+    }
+
+    private void write(String name, String content, Element... originatingElements) throws Exception {
+        JavaFileObject file = processingEnv.getFiler().createSourceFile(name, originatingElements);
+        Writer out = file.openWriter();
+        try {
+            out.write(content);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * The signature of a class from its elements, classes are printed by their qualified name like
+     * {@link ClassFileFrontEnd} prints them
+     */
+    static TypeSignature signature(TypeElement type) {
+        TypeSignature signature = new TypeSignature(type.getSimpleName().toString(), 1, new MemberIndex());
+        for (TypeParameterElement typeParameter : type.getTypeParameters()) {
+            signature.addTypeParameter(typeParameter.getSimpleName().toString());
+        }
+        TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() == TypeKind.DECLARED && !((TypeElement) ((DeclaredType) superclass)
+                .asElement()).getQualifiedName().contentEquals("java.lang.Object")) {
+            signature.setSuperclass(print(superclass));
+        }
+        for (Element member : type.getEnclosedElements()) {
+            if (member.getKind() == ElementKind.FIELD) {
+                signature.addField(member.getSimpleName().toString(), print(member.asType()));
+            } else if (member.getKind() == ElementKind.METHOD) {
+                ExecutableElement method = (ExecutableElement) member;
+                List<? extends VariableElement> parameters = method.getParameters();
+                String[] paramTypes = new String[parameters.size()];
+                for (int i = 0; i < paramTypes.length; i++) {
+                    paramTypes[i] = print(parameters.get(i).asType());
+                }
+                signature.getMethods().add(method.getSimpleName().toString(), print(method.getReturnType()),
+                        paramTypes);
+            }
+        }
+        return signature;
+    }
+
+    private static String print(TypeMirror type) {
+        switch (type.getKind()) {
+        case ARRAY:
+            return print(((ArrayType) type).getComponentType())+"[]";
+        case TYPEVAR:
+            return ((TypeVariable) type).asElement().getSimpleName().toString();
+        case WILDCARD:
+            WildcardType wildcard = (WildcardType) type;
+            if (wildcard.getExtendsBound() != null) {
+                return "? extends "+print(wildcard.getExtendsBound());
+            }
+            if (wildcard.getSuperBound() != null) {
+                return "? super "+print(wildcard.getSuperBound());
+            }
+            return "?";
+        case DECLARED:
+            DeclaredType declared = (DeclaredType) type;
+            StringBuilder buf = new StringBuilder(((TypeElement) declared.asElement()).getQualifiedName()
+                    .toString());
+            List<? extends TypeMirror> arguments = declared.getTypeArguments();
+            if (!arguments.isEmpty()) {
+                buf.append('<');
+                for (int i = 0; i < arguments.size(); i++) {
+                    if (i > 0) {
+                        buf.append(", ");
+                    }
+                    buf.append(print(arguments.get(i)));
+                }
+                buf.append('>');
+            }
+            return buf.toString();
+        default:
+            // primitives, void and types that do not resolve, as written
+            return type.toString();
+        }
+    }
+}
@@ -0,0 +1,226 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package us.gibb.dev.vo_gen;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps generating while the sources are edited. The package directories of the generator are watched and
+ * every burst of changes regenerates the VOs of the changed sources and the converters whose classes
+ * changed, the class infos of the other sources are kept in memory together with the emitter.
+ * <p>
+ * The manifest is saved to the marker directory of the generator after every generation, if there is one.
+ */
+public class VOWatcher {
+    private final VOGen gen;
+    private long debounceMillis = 100;
+    private WatchService watchService;
+    private SourceWalker walker;
+    /**
+     * The settings of the generator when watching started
+     */
+    private GenerationRequest request;
+    private volatile boolean closed;
+
+    public VOWatcher(VOGen gen) {
+        this.gen = gen;
+    }
+
+    public long getDebounceMillis() {
+        return debounceMillis;
+    }
+
+    /**
+     * How long the sources have to be quiet before generating, so saving many files generates once
+     */
+    public void setDebounceMillis(long debounceMillis) {
+        this.debounceMillis = debounceMillis;
+    }
+
+    /**
+     * Generates everything, then regenerates on every change until {@link #close()} is called or the
+     * thread is interrupted. Only the sources are watched, generating from class files is not supported.
+     */
+    public void watch() throws GenerationException {
+        if (gen.getClassesDirectory() != null || (gen.getJars() != null && gen.getJars().length > 0)) {
+            throw new GenerationException(new IllegalArgumentException(
+                    "Unable to watch class files, only the sources are watched"));
+        }
+        Log log = gen.getLog();
+        Map<WatchKey, String> packageDirs = new HashMap<WatchKey, String>();
+        try {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                watchService = FileSystems.getDefault().newWatchService();
+            }
+            // register before the first generation so no change is missed
+            walker = new SourceWalker(gen.getSrcDir(), gen.getIncludes(), gen.getExcludes(), gen.isRecursive());
+            for (String packageName : gen.getPackages()) {
+                File directory = new File(gen.getSrcDir(), packageName.replace('.', '/'));
+                if (!directory.isDirectory()) {
+                    log.warn("Not watching missing package directory {0}", directory.getAbsolutePath());
+                    continue;
+                }
+                register(packageName, packageDirs);
+            }
+
+            Manifest manifest = generate(null, null);
+            log.info("Watching {0} packages in {1}", packageDirs.size(), gen.getSrcDir().getAbsolutePath());
+            // sources changed since the last successful generation, null if not known
+            Set<String> changed = new HashSet<String>();
+            while (!closed) {
+                boolean complete = true;
+                WatchKey key = watchService.take();
+                // collect until the sources are quiet for the debounce time
+                while (key != null) {
+                    complete &= poll(key, packageDirs, changed == null ? new HashSet<String>() : changed);
+                    key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS);
+                }
+                if (!complete) {
+                    changed = null;
+                }
+                if (changed != null && changed.isEmpty()) {
+                    continue;
+                }
+                log.info("Changed: {0}", changed == null ? "unknown, regenerating all" : changed);
+                try {
+                    manifest = generate(manifest, changed);
+                    changed = new HashSet<String>();
+                } catch (GenerationException e) {
+                    // most likely a source saved half way, generated again with the next change
+                    log.warn("Generation failed, waiting for the next change: {0}", e.getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // closed while waiting
+        } catch (IOException e) {
+            if (!closed) {
+                log.error(e);
+                throw new GenerationException(e);
+            }
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Stops watching, a generation in progress is completed
+     */
+    public void close() {
+        WatchService service;
+        synchronized (this) {
+            closed = true;
+            service = watchService;
+        }
+        if (service != null) {
+            try {
+                service.close();
+            } catch (IOException e) {
+                gen.getLog().warn("Unable to close the watch service: {0}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Adds the sources changed according to the key, returns false if events were lost
+     */
+    private boolean poll(WatchKey key, Map<WatchKey, String> packageDirs, Set<String> changed)
+            throws IOException {
+        boolean complete = true;
+        String packageDir = packageDirs.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                complete = false;
+                continue;
+            }
+            String name = ((Path) event.context()).getFileName().toString();
+            if (name.endsWith(".java")) {
+                changed.add(packageDir+"/"+name);
+            } else if (event.kind() == ENTRY_CREATE && gen.isRecursive()
+                    && new File(new File(gen.getSrcDir(), packageDir), name).isDirectory()) {
+                // a new subpackage, its sources may have been created before it was registered
+                register(packageDir.replace('/', '.')+"."+name, packageDirs);
+                complete = false;
+            }
+        }
+        if (!key.reset()) {
+            gen.getLog().warn("No longer watching {0}", packageDir);
+            packageDirs.remove(key);
+        }
+        return complete;
+    }
+
+    /**
+     * Watches the directory of the package and, when recursive, of its subpackages
+     */
+    private void register(String packageName, Map<WatchKey, String> packageDirs) throws IOException {
+        String packageDir = packageName.replace('.', '/');
+        Path directory = new File(gen.getSrcDir(), packageDir).toPath();
+        packageDirs.put(directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), packageDir);
+        for (String subpackage : walker.list(packageName).subpackages) {
+            register(subpackage, packageDirs);
+        }
+    }
+
+    /**
+     * Generates from the manifest of the previous generation, returns the manifest of this one
+     */
+    private Manifest generate(Manifest previous, Set<String> changed) throws GenerationException {
+        Manifest current = new Manifest();
+        try {
+            if (request == null) {
+                request = gen.toRequest();
+            }
+            File markerDirectory = request.getMarkerDirectory();
+            if (previous == null && markerDirectory != null) {
+                previous = Manifest.load(markerDirectory, request.getLog());
+            }
+            gen.generate(request, new FileSystemSink(request.getOutDir(), request.isWriteIfChanged(), request
+                    .getLog()), previous, current, changed);
+            if (markerDirectory != null) {
+                current.save(markerDirectory);
+            }
+        } catch (Exception e) {
+            throw new GenerationException(e);
+        }
+        return current;
+    }
+}
@@ -0,0 +1,241 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package us.gibb.dev.vo_gen;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringWriter;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.velocity.Template;
+import org.apache.velocity.VelocityContext;
+import org.apache.velocity.runtime.RuntimeInstance;
+
+/**
+ * Emits the sources by merging the templates/VO.vm and templates/VOs.vm Velocity templates, or templates of
+ * its own.
+ * <p>
+ * A template is a file or, if there is no such file, a resource on the classpath. An emitter resolves its
+ * templates when it first uses them and keeps them until {@link #reload()} reads them again. Compiled
+ * templates are shared by all emitters of the JVM by location and checksum, so a location that has another
+ * content for another emitter, like a resource of another project's classpath, is compiled on its own.
+ */
+public class VelocityEmitter implements TemplateEmitter {
+    public static final String VO_TEMPLATE = "templates/VO.vm";
+    public static final String CONVERTER_TEMPLATE = "templates/VOs.vm";
+
+    private static VelocityEmitter shared;
+    private static RuntimeInstance runtime;
+
+    static final int MAX_TEMPLATES = 16;
+
+    /**
+     * Compiled templates by location and checksum, least recently used first, guarded by the class
+     */
+    private static final Map<String, Compiled> TEMPLATES = new LinkedHashMap<String, Compiled>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Compiled> eldest) {
+            return size() > MAX_TEMPLATES;
+        }
+    };
+
+    private final String voTemplate;
+    private final String converterTemplate;
+    /**
+     * The templates of this emitter, null until first used
+     */
+    private volatile Compiled vo;
+    private volatile Compiled converter;
+
+    /**
+     * The emitter of the default templates shared by all generators of the JVM, so concurrent builds
+     * compile the templates once. Merging is thread safe.
+     */
+    public static synchronized VelocityEmitter shared() {
+        if (shared == null) {
+            try {
+                shared = new VelocityEmitter();
+            } catch (Exception e) {
+                throw new IllegalStateException("Unable to initialize Velocity", e);
+            }
+        }
+        return shared;
+    }
+
+    public VelocityEmitter() throws Exception {
+        this(VO_TEMPLATE, CONVERTER_TEMPLATE);
+    }
+
+    /**
+     * @param voTemplate file or classpath resource of the VO template
+     * @param converterTemplate file or classpath resource of the converter template
+     */
+    public VelocityEmitter(String voTemplate, String converterTemplate) throws Exception {
+        this.voTemplate = voTemplate;
+        this.converterTemplate = converterTemplate;
+        runtime();
+    }
+
+    public String getVOTemplate() {
+        return voTemplate;
+    }
+
+    public String getConverterTemplate() {
+        return converterTemplate;
+    }
+
+    public void emitVO(ClassInfo info, StringBuilder out) throws Exception {
+        Map<String, Object> ctxt = new HashMap<String, Object>();
+        ctxt.put("name", info.getName());
+        ctxt.put("packageName", info.getPackageName());
+        ctxt.put("newPackage", info.getNewPackage());
+        ctxt.put("newName", info.getNewName());
+        ctxt.put("fields", info.getFields());
+        ctxt.put("imports", info.getImports());
+        merge(vo(), ctxt, out);
+    }
+
+    public void emitConverter(String defaultPackage, Collection<ClassInfo> classes, StringBuilder out)
+            throws Exception {
+        Map<String, Object> ctxt = new HashMap<String, Object>();
+        ctxt.put("defaultPackage", defaultPackage);
+        ctxt.put("classes", classes);
+        merge(converter(), ctxt, out);
+    }
+
+    public void reload() throws Exception {
+        // merges in progress keep the templates they started with
+        vo = load(voTemplate);
+        converter = load(converterTemplate);
+    }
+
+    public String getVOTemplateChecksum() throws Exception {
+        return vo().checksum;
+    }
+
+    public String getConverterTemplateChecksum() throws Exception {
+        return converter().checksum;
+    }
+
+    private Compiled vo() throws Exception {
+        Compiled compiled = vo;
+        if (compiled == null) {
+            compiled = load(voTemplate);
+            vo = compiled;
+        }
+        return compiled;
+    }
+
+    private Compiled converter() throws Exception {
+        Compiled compiled = converter;
+        if (compiled == null) {
+            compiled = load(converterTemplate);
+            converter = compiled;
+        }
+        return compiled;
+    }
+
+    private void merge(Compiled template, Map<?, ?> ctxt, StringBuilder out) throws Exception {
+        VelocityContext velocityContext = new VelocityContext(ctxt);
+        StringWriter writer = new StringWriter();
+        template.template.merge(velocityContext, writer);
+        out.append(writer.getBuffer());
+    }
+
+    private static synchronized RuntimeInstance runtime() throws Exception {
+        if (runtime == null) {
+            RuntimeInstance instance = new RuntimeInstance();
+            instance.init();
+            runtime = instance;
+        }
+        return runtime;
+    }
+
+    /**
+     * Reads the template at the location, compiles it unless its content was compiled before
+     */
+    private static Compiled load(String location) throws Exception {
+        byte[] content = read(location);
+        String checksum = Manifest.hash(content);
+        String key = location+File.pathSeparator+checksum;
+        Compiled compiled;
+        synchronized (VelocityEmitter.class) {
+            compiled = TEMPLATES.get(key);
+        }
+        if (compiled != null) {
+            return compiled;
+        }
+        Template template = new Template();
+        RuntimeInstance rsvc = runtime();
+        template.setRuntimeServices(rsvc);
+        template.setName(location);
+        template.setEncoding("UTF-8");
+        template.setData(rsvc.parse(new InputStreamReader(new ByteArrayInputStream(content), "UTF-8"), location));
+        template.initDocument();
+        compiled = new Compiled(checksum, template);
+        synchronized (VelocityEmitter.class) {
+            TEMPLATES.put(key, compiled);
+        }
+        return compiled;
+    }
+
+    private static byte[] read(String location) throws IOException {
+        File file = new File(location);
+        if (file.isFile()) {
+            return FileUtils.readFileToByteArray(file);
+        }
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        InputStream in = loader == null ? null : loader.getResourceAsStream(location);
+        if (in == null) {
+            in = VelocityEmitter.class.getClassLoader().getResourceAsStream(location);
+        }
+        if (in == null) {
+            throw new IOException("No template file or classpath resource "+location);
+        }
+        try {
+            return IOUtils.toByteArray(in);
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    /**
+     * A template and the checksum of the content it was compiled from
+     */
+    private static class Compiled {
+        final String checksum;
+        final Template template;
+
+        Compiled(String checksum, Template template) {
+            this.checksum = checksum;
+            this.template = template;
+        }
+    }
+}
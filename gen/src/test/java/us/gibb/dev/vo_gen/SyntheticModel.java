@@ -0,0 +1,110 @@
+package us.gibb.dev.vo_gen;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Writes source trees of generated entity classes for benchmarks and scaling tests. Every class has
+ * fields of mixed types with getters and setters, a few fields without a setter and some business logic,
+ * the same seed always gives the same sources.
+ */
+public class SyntheticModel {
+    private static final String[] TYPES = {"String", "int", "Date", "boolean", "long", "List<String>",
+            "BigDecimal", "Map<String, Integer>"};
+
+    private final Random random;
+    private final int minFields;
+    private final int maxFields;
+
+    public SyntheticModel(long seed, int minFields, int maxFields) {
+        this.random = new Random(seed);
+        this.minFields = minFields;
+        this.maxFields = maxFields;
+    }
+
+    /**
+     * Writes the classes of a package below the source directory
+     * 
+     * @return the written files
+     */
+    public List<File> writePackage(File srcDir, String packageName, int classes) throws IOException {
+        File dir = new File(srcDir, packageName.replace('.', '/'));
+        List<File> files = new ArrayList<File>(classes);
+        for (int i = 0; i < classes; i++) {
+            String name = "Entity"+i;
+            File file = new File(dir, name+".java");
+            FileUtils.writeStringToFile(file, source(packageName, name, fieldCount()));
+            files.add(file);
+        }
+        return files;
+    }
+
+    /**
+     * Writes the classes spread over packages of at most packageSize classes, named basePackage.p0,
+     * basePackage.p1 and so on
+     * 
+     * @return the names of the packages
+     */
+    public String[] writePackages(File srcDir, String basePackage, int classes, int packageSize)
+            throws IOException {
+        int count = (classes + packageSize - 1) / packageSize;
+        String[] packages = new String[count];
+        for (int p = 0; p < count; p++) {
+            packages[p] = basePackage+".p"+p;
+            writePackage(srcDir, packages[p], Math.min(packageSize, classes - p * packageSize));
+        }
+        return packages;
+    }
+
+    private int fieldCount() {
+        return minFields + (maxFields > minFields ? random.nextInt(maxFields - minFields + 1) : 0);
+    }
+
+    public String source(String packageName, String name, int fields) {
+        StringBuilder out = new StringBuilder(fields * 200 + 500);
+        out.append("package ").append(packageName).append(";\n\n");
+        out.append("import java.math.BigDecimal;\n");
+        out.append("import java.util.Date;\n");
+        out.append("import java.util.List;\n");
+        out.append("import java.util.Map;\n\n");
+        out.append("public class ").append(name).append(" {\n\n");
+        for (int i = 0; i < fields; i++) {
+            out.append("    private ").append(type(i)).append(" field").append(i).append(";\n");
+        }
+        for (int i = 0; i < fields; i++) {
+            String type = type(i);
+            String property = StringUtils.capitalize("field"+i);
+            out.append("\n    public ").append(type).append(type.equals("boolean") ? " is" : " get").append(property)
+                    .append("() {\n        return field").append(i).append(";\n    }\n");
+            // every seventh field is read only
+            if (i % 7 != 6) {
+                out.append("\n    public void set").append(property).append("(").append(type).append(" field")
+                        .append(i).append(") {\n        this.field").append(i).append(" = field").append(i)
+                        .append(";\n    }\n");
+            }
+        }
+        out.append("\n    public String describe() {\n");
+        out.append("        StringBuilder buf = new StringBuilder();\n");
+        out.append("        for (int i = 0; i < ").append(random.nextInt(10) + 1).append("; i++) {\n");
+        out.append("            if (i % 2 == 0) {\n");
+        out.append("                buf.append(\"").append(name).append("\").append(i);\n");
+        out.append("            } else {\n");
+        out.append("                buf.append(String.valueOf(i * 31)).append(',');\n");
+        out.append("            }\n");
+        out.append("        }\n");
+        out.append("        return buf.toString();\n");
+        out.append("    }\n");
+        out.append("}\n");
+        return out.toString();
+    }
+
+    private static String type(int field) {
+        return TYPES[field % TYPES.length];
+    }
+}
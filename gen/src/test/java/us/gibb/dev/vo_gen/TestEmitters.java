@@ -0,0 +1,105 @@
+package us.gibb.dev.vo_gen;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestEmitters {
+
+    private Emitter velocity;
+    private Emitter java;
+    private ClassInfo user;
+    private ClassInfo empty;
+
+    @Before
+    public void setUp() throws Exception {
+        velocity = Emitters.forName(Emitters.VELOCITY);
+        java = Emitters.forName(Emitters.JAVA);
+        File file = new File("src/test/java/us/gibb/dev/vo_gen/model/User.java");
+        user = new VOGen().extract("us.gibb.dev.vo_gen.model", file, FileUtils.readFileToByteArray(file));
+        empty = new ClassInfo("Empty", "us.gibb.dev.vo_gen.other", new ArrayList<FieldInfo>());
+    }
+
+    @Test
+    public void testVOParity() throws Exception {
+        assertFalse(user.getFields().isEmpty());
+        assertVOParity(user);
+        assertVOParity(empty);
+
+        List<FieldInfo> fields = new ArrayList<FieldInfo>();
+        fields.add(new FieldInfo("tags", "Map<String, List<Date>>", "getTags", "setTags"));
+        assertVOParity(new ClassInfo("Tagged", "us.gibb.dev.vo_gen.other", fields));
+    }
+
+    @Test
+    public void testConverterParity() throws Exception {
+        assertConverterParity(Arrays.asList(user, empty));
+        assertConverterParity(Collections.singletonList(user));
+        assertConverterParity(Collections.<ClassInfo>emptyList());
+    }
+
+    @Test
+    public void testBufferIsAppended() throws Exception {
+        StringBuilder out = new StringBuilder("// header");
+        java.emitVO(user, out);
+        assertTrue(out.toString().startsWith("// header\npackage us.gibb.dev.vo_gen.model.vo;"));
+    }
+
+    @Test
+    public void testTemplatesOfOtherClasspaths() throws Exception {
+        VelocityEmitter first = emitter("first");
+        VelocityEmitter second = emitter("second");
+        // the same location has another content on the other classpath
+        assertFalse(first.getVOTemplateChecksum().equals(second.getVOTemplateChecksum()));
+        StringBuilder out = new StringBuilder();
+        first.emitVO(user, out);
+        second.emitVO(user, out.append(','));
+        assertEquals("first UserVO,second UserVO", out.toString());
+    }
+
+    /**
+     * An emitter of the templates/custom templates of a classpath of its own
+     */
+    private static VelocityEmitter emitter(String name) throws Exception {
+        File classpath = new File("target/classpath-"+name);
+        FileUtils.writeStringToFile(new File(classpath, "templates/custom/VO.vm"), name+" $newName");
+        FileUtils.writeStringToFile(new File(classpath, "templates/custom/VOs.vm"), name);
+        ClassLoader context = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(new URLClassLoader(new URL[]{classpath.toURI().toURL()},
+                context));
+        try {
+            VelocityEmitter emitter = new VelocityEmitter("templates/custom/VO.vm", "templates/custom/VOs.vm");
+            emitter.reload();
+            return emitter;
+        } finally {
+            Thread.currentThread().setContextClassLoader(context);
+        }
+    }
+
+    private void assertVOParity(ClassInfo info) throws Exception {
+        StringBuilder expected = new StringBuilder();
+        velocity.emitVO(info, expected);
+        StringBuilder actual = new StringBuilder();
+        java.emitVO(info, actual);
+        assertEquals(expected.toString(), actual.toString());
+    }
+
+    private void assertConverterParity(Collection<ClassInfo> classes) throws Exception {
+        StringBuilder expected = new StringBuilder();
+        velocity.emitConverter("us.gibb.dev.vo_gen.model.vo", classes, expected);
+        StringBuilder actual = new StringBuilder();
+        java.emitConverter("us.gibb.dev.vo_gen.model.vo", classes, actual);
+        assertEquals(expected.toString(), actual.toString());
+    }
+}
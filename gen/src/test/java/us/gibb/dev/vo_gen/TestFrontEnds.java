@@ -0,0 +1,279 @@
+package us.gibb.dev.vo_gen;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * The signature scanner has to read the same signatures as JavaParser
+ */
+public class TestFrontEnds {
+    private static final File FILE = new File("Source.java");
+
+    private static final String TRICKY = "package us.gibb.dev.vo_gen.other;\n"
+            +"\n"
+            +"import java.util.*;\n"
+            +"import static java.util.Collections.emptyList;\n"
+            +"\n"
+            +"/** a { in a comment */\n"
+            +"@Entity(name = \"tricky\", tags = {\"a\", \"b\"})\n"
+            +"public class Tricky<T extends Comparable<T>> extends Base implements java.io.Serializable {\n"
+            +"    private static final long serialVersionUID = 1L;\n"
+            +"    // a } in a comment\n"
+            +"    private String brace = \"}\", quote = \"\\\"{\";\n"
+            +"    private char c = '{';\n"
+            +"    private Map< String ,  List<Date> > tags = new HashMap<String, List<Date>>(), other;\n"
+            +"    private int[] counts = {1, 2, 3}, matrix[];\n"
+            +"    private boolean active = 1 < 2, done = 3 > 2;\n"
+            +"    @Column(name = \"x\") protected transient java.util.Date when;\n"
+            +"    private Map.Entry<String, ? extends Number> entry;\n"
+            +"    private List<?> any;\n"
+            +"    private Runnable task = new Runnable() {\n"
+            +"        public void run() { String s = \"}\"; }\n"
+            +"    };\n"
+            +"\n"
+            +"    static { System.out.println(\"{\"); }\n"
+            +"    { counts = new int[] {4}; }\n"
+            +"\n"
+            +"    public Tricky() { this(null); }\n"
+            +"    public <X> Tricky(X x) { }\n"
+            +"\n"
+            +"    public String getBrace() { if (true) { return \"{\"; } return brace; }\n"
+            +"    public void setBrace(final String brace) { this.brace = brace; }\n"
+            +"    public Map<String,List<Date>> getTags() { return tags; }\n"
+            +"    public void setTags(@Valid Map<String, List<Date>> tags) { this.tags = tags; }\n"
+            +"    public int[] getCounts() { return counts; }\n"
+            +"    public void setCounts(int... counts) { this.counts = counts; }\n"
+            +"    public boolean isActive() { return active; }\n"
+            +"    public void setActive(boolean active) throws IllegalStateException, RuntimeException { }\n"
+            +"    public java.util.Date getWhen() { return when; }\n"
+            +"    public void setWhen(Date when) { }\n"
+            +"    public <R extends Runnable> R run(R r, String[] args, List<? super Integer> sink) { return r; }\n"
+            +"    public abstract T compare(T a, T b);\n"
+            +"    public Map.Entry<String, ? extends Number> getEntry() { return entry; }\n"
+            +"    public void setEntry(Map.Entry<String, ? extends Number> entry) { }\n"
+            +"\n"
+            +"    private static class Nested { private String hidden; public String getHidden() { return null; } }\n"
+            +"    enum Kind { A, B }\n"
+            +"}\n"
+            +"\n"
+            +"class Second { private String ignored; }\n";
+
+    private static final String ENUM = "package us.gibb.dev.vo_gen.other;\n"
+            +"public enum Color {\n"
+            +"    RED(\"r\") { public String code() { return \"{\"; } },\n"
+            +"    GREEN(\"g\");\n"
+            +"    private String code;\n"
+            +"    Color(String code) { this.code = code; }\n"
+            +"    public String getCode() { return code; }\n"
+            +"    public void setCode(String code) { this.code = code; }\n"
+            +"}\n";
+
+    private static final String ANNOTATION = "package us.gibb.dev.vo_gen.other;\n"
+            +"public @interface Marker {\n"
+            +"    String NAME = \"marker\";\n"
+            +"    String value() default \"{\";\n"
+            +"    int[] sizes() default {1};\n"
+            +"}\n";
+
+    private static final String INTERFACE = "package us.gibb.dev.vo_gen.other;\n"
+            +"public interface Named {\n"
+            +"    String getName();\n"
+            +"    void setName(String name);\n"
+            +"}\n";
+
+    private FrontEnd javaParser;
+    private FrontEnd scanner;
+
+    @Before
+    public void setUp() throws Exception {
+        javaParser = FrontEnds.forName(FrontEnds.JAVAPARSER);
+        scanner = FrontEnds.forName(FrontEnds.SCANNER);
+    }
+
+    @Test
+    public void testModelParity() throws Exception {
+        File file = new File("src/test/java/us/gibb/dev/vo_gen/model/User.java");
+        assertParity(FileUtils.readFileToByteArray(file));
+    }
+
+    @Test
+    public void testTrickyParity() throws Exception {
+        TypeSignature type = assertParity(TRICKY.getBytes());
+        assertEquals(2, type.getTypeCount());
+        assertEquals(Arrays.asList("T"), type.getTypeParameters());
+        assertEquals("Base", type.getSuperclass());
+        assertEquals("Map<String, List<Date>>", type.getFields().get(4).getType());
+        assertEquals("{run(R,String[],List<?superInteger>)=R}", methods(type.getMethods(), "run"));
+    }
+
+    @Test
+    public void testEncoding() throws Exception {
+        // read as UTF-8 whatever the platform encoding
+        TypeSignature type = assertParity(("package us.gibb.dev.vo_gen.other;\n"
+                +"/** Gr\u00fc\u00dfe */\n"
+                +"public class Stra\u00dfe {\n"
+                +"    private String \u00e9tage;\n"
+                +"}\n").getBytes(OutputSink.ENCODING));
+        assertEquals("Stra\u00dfe", type.getName());
+        assertEquals("\u00e9tage", type.getFields().get(0).getName());
+    }
+
+    @Test
+    public void testOtherTypesParity() throws Exception {
+        assertParity(ENUM.getBytes());
+        assertParity(ANNOTATION.getBytes());
+        assertParity(INTERFACE.getBytes());
+        assertNull(scanner.read(FILE, "package us.gibb.dev.vo_gen.other;\n".getBytes()));
+    }
+
+    @Test
+    public void testSyntheticParity() throws Exception {
+        SyntheticModel model = new SyntheticModel(7, 0, 40);
+        for (int i = 0; i < 50; i++) {
+            assertParity(model.source("us.gibb.dev.vo_gen.other", "Synthetic"+i, i).getBytes());
+        }
+    }
+
+    @Test
+    public void testExtractParity() throws Exception {
+        VOGen gen = new VOGen();
+        ClassInfo expected = gen.extract("us.gibb.dev.vo_gen.other", FILE, TRICKY.getBytes());
+        gen.setFrontEnd(scanner);
+        ClassInfo actual = gen.extract("us.gibb.dev.vo_gen.other", FILE, TRICKY.getBytes());
+        assertEquals(expected.toString(), actual.toString());
+        assertEquals(expected.getImports(), actual.getImports());
+        // counts has no matching setter, Date and java.util.Date are the same type
+        assertEquals(5, actual.getFields().size());
+        assertEquals("Date when", actual.getFields().get(3).toString());
+        assertEquals("Map.Entry<String, ? extends Number> entry", actual.getFields().get(4).toString());
+        assertEquals(Arrays.asList("java.io.Serializable", "java.util.Date", "java.util.List", "java.util.Map"),
+                actual.getImports());
+    }
+
+    @Test
+    public void testSymbolTable() throws Exception {
+        SymbolTable symbols = new SymbolTable(new File("src/test/java"));
+        SymbolTable.Scope scope = symbols.scope("us.gibb.dev.vo_gen.model", Arrays.asList("java.util.*",
+                "java.sql.Timestamp", "java.util.Map.Entry"));
+        assertSame(scope.resolve("Map<String, List<Date>>"), scope.resolve(
+                "java.util.Map< String,List<java.util.Date> >"));
+        assertEquals("java.util.Map<java.lang.String,java.util.List<? extends java.util.Date>>", scope.resolve(
+                "Map<String, List<? extends Date>>"));
+        assertEquals("java.util.Map$Entry<java.lang.String,int[]>", scope.resolve("Entry<String, int[]>"));
+        assertSame(scope.resolve("Entry"), scope.resolve("Map.Entry"));
+        assertEquals("java.sql.Timestamp", scope.resolve("Timestamp"));
+        // a source of the package, and a type variable that does not resolve
+        assertEquals("us.gibb.dev.vo_gen.model.User[]", scope.resolve("User[]"));
+        assertEquals("T", scope.resolve("T"));
+
+        SymbolTable.Imports imports = new SymbolTable.Imports("us.gibb.dev.vo_gen.model.vo", "UserVO");
+        assertEquals("Map<String, List<Date>>", imports.print(scope.resolve("Map<String, List<Date>>")));
+        assertEquals("Map.Entry<String, int[]>", imports.print(scope.resolve("Entry<String, int[]>")));
+        assertEquals("User", imports.print(scope.resolve("User")));
+        // the simple name is taken
+        assertEquals("java.sql.Date", imports.print(scope.resolve("java.sql.Date")));
+        assertEquals(Arrays.asList("java.util.Date", "java.util.List", "java.util.Map",
+                "us.gibb.dev.vo_gen.model.User"), imports.getImports());
+    }
+
+    @Test
+    public void testClassFileParity() throws Exception {
+        File source = new File("src/test/java/us/gibb/dev/vo_gen/model/User.java");
+        File classFile = new File("target/test-classes/us/gibb/dev/vo_gen/model/User.class");
+        VOGen gen = new VOGen();
+        ClassInfo expected = gen.extract("us.gibb.dev.vo_gen.model", source, FileUtils.readFileToByteArray(source));
+        gen.setFrontEnd(new ClassFileFrontEnd());
+        ClassInfo actual = gen.extract("us.gibb.dev.vo_gen.model", classFile, FileUtils
+                .readFileToByteArray(classFile));
+        assertEquals(expected.toString(), actual.toString());
+    }
+
+    @Test
+    public void testClassFileTypes() throws Exception {
+        InputStream in = getClass().getResourceAsStream("TestFrontEnds$Compiled.class");
+        TypeSignature type;
+        try {
+            type = new ClassFileFrontEnd().read(FILE, IOUtils.toByteArray(in));
+        } finally {
+            in.close();
+        }
+        assertEquals("TestFrontEnds$Compiled", type.getName());
+        assertEquals(Arrays.asList("T"), type.getTypeParameters());
+        // classes are qualified
+        assertEquals("[java.util.Map<java.lang.String, java.util.List<java.util.Date>> tags, int[][] matrix, "
+                +"java.util.Map.Entry<java.lang.String, ? extends java.lang.Number> entry, java.math.BigDecimal "
+                +"amount, T value]", type.getFields().toString());
+        assertEquals("{run(R,java.lang.String[],java.util.List<?superjava.lang.Integer>)=R}", methods(type
+                .getMethods(), "run"));
+        assertEquals("{setTags(java.util.Map<java.lang.String,java.util.List<java.util.Date>>)=void}", methods(type
+                .getMethods(), "setTags"));
+
+        in = getClass().getResourceAsStream("TestFrontEnds$CompiledSubclass.class");
+        try {
+            type = new ClassFileFrontEnd().read(FILE, IOUtils.toByteArray(in));
+        } finally {
+            in.close();
+        }
+        // the type arguments of the superclass are read from the signature of the class
+        assertEquals("us.gibb.dev.vo_gen.TestFrontEnds.Compiled<java.lang.String>", type.getSuperclass());
+        assertTrue(type.getTypeParameters().isEmpty());
+    }
+
+    @SuppressWarnings("unused")
+    private static abstract class Compiled<T extends Comparable<T>> {
+        private Map<String, List<Date>> tags;
+        private int[][] matrix;
+        private java.util.Map.Entry<String, ? extends Number> entry;
+        private java.math.BigDecimal amount;
+        private T value;
+
+        public void setTags(Map<String, List<Date>> tags) {
+            this.tags = tags;
+        }
+
+        public abstract <R extends Runnable> R run(R r, String[] args, List<? super Integer> sink);
+    }
+
+    private static abstract class CompiledSubclass extends Compiled<String> {
+    }
+
+    private TypeSignature assertParity(byte[] content) throws Exception {
+        TypeSignature expected = javaParser.read(FILE, content);
+        TypeSignature actual = scanner.read(FILE, content);
+        assertEquals(expected.toString(), actual.toString());
+        assertEquals(methods(expected.getMethods()), methods(actual.getMethods()));
+        assertEquals(expected.getTypeCount(), actual.getTypeCount());
+        return actual;
+    }
+
+    /**
+     * The methods with the given names, all by default, as sorted signatures with their return types. The
+     * whitespace the front ends print differently is removed.
+     */
+    private static String methods(MemberIndex index, String... names) {
+        Map<String, String> methods = new TreeMap<String, String>();
+        for (String name : names.length == 0 ? index.getNames() : Arrays.asList(names)) {
+            for (MemberIndex.Method method : index.getMethods(name)) {
+                StringBuilder signature = new StringBuilder(name).append('(');
+                for (int i = 0; i < method.getParamCount(); i++) {
+                    signature.append(i > 0 ? "," : "").append(method.getParamType(i));
+                }
+                methods.put(signature.append(')').toString().replaceAll("\\s", ""), method.getReturnType()
+                        .replaceAll("\\s", ""));
+            }
+        }
+        return methods.toString();
+    }
+}
@@ -0,0 +1,46 @@
+package us.gibb.dev.vo_gen;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class TestGenerationReport {
+
+    @Test
+    public void testThreadsAreMerged() throws Exception {
+        final GenerationReport report = new GenerationReport(2);
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            final int thread = i;
+            threads[i] = new Thread(new Runnable() {
+                public void run() {
+                    for (int j = 0; j < 100; j++) {
+                        GenerationReport.Probe probe = report.start();
+                        probe.stop(GenerationReport.Phase.PARSE, "p"+thread % 2);
+                        report.recordSource("s"+thread+"/"+j, j % 2 == 0, thread * 1000 + j);
+                    }
+                    report.recordCached();
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(404, report.getSources());
+        assertEquals(200, report.getUnchanged());
+        assertEquals(4, report.getCached());
+        assertEquals(400, report.getPhase(GenerationReport.Phase.PARSE).getCount());
+        assertEquals(0, report.getPhase(GenerationReport.Phase.RENDER).getCount());
+        assertEquals(200, report.getPackage("p1").get(GenerationReport.Phase.PARSE).getCount());
+        List<GenerationReport.SourceTime> slowest = report.getSlowest();
+        assertEquals(2, slowest.size());
+        assertEquals("s3/98", slowest.get(0).getPath());
+        assertEquals("s3/96", slowest.get(1).getPath());
+        // measured on the JVMs the build runs on
+        assertTrue(report.getPhase(GenerationReport.Phase.PARSE).getAllocatedBytes() >= 0);
+    }
+}
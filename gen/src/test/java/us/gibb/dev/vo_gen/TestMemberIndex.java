@@ -0,0 +1,73 @@
+package us.gibb.dev.vo_gen;
+
+import japa.parser.JavaParser;
+
+import java.io.ByteArrayInputStream;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestMemberIndex {
+    private static final String SOURCE = "package us.gibb.dev.vo_gen.other;\n"
+            +"import java.util.*;\n"
+            +"public class Members<T> {\n"
+            +"    public Members() { }\n"
+            +"    public String getName() { return null; }\n"
+            +"    public void setName(String name) { }\n"
+            +"    public void setName(char[] name) { }\n"
+            +"    public void setName(String first, String last) { }\n"
+            +"    public Map<String, List<Date>> getTags() { return null; }\n"
+            +"    public void setTags(Map<String,List<Date>> tags) { }\n"
+            +"    public int[][] getMatrix() { return null; }\n"
+            +"    public void setValues(T... values) { }\n"
+            +"    public <R extends Runnable> R run(R r, List<? super Integer> sink) { return r; }\n"
+            +"    class Nested {\n"
+            +"        public void setNested(String nested) { }\n"
+            +"    }\n"
+            +"}\n";
+
+    private MemberIndex index;
+
+    @Before
+    public void setUp() throws Exception {
+        index = MemberIndex.of(JavaParser.parse(new ByteArrayInputStream(SOURCE.getBytes("UTF-8"))).getTypes()
+                .get(0));
+    }
+
+    @Test
+    public void testByName() {
+        // constructors and the members of nested types are not indexed
+        assertEquals(9, index.size());
+        assertFalse(index.getNames().contains("Members"));
+        assertTrue(index.getMethods("setNested").isEmpty());
+
+        // the overloads in declaration order, with their types as declared
+        List<MemberIndex.Method> overloads = index.getMethods("setName");
+        assertEquals(3, overloads.size());
+        assertEquals("String", overloads.get(0).getParamType(0));
+        assertEquals("char[]", overloads.get(1).getParamType(0));
+        assertEquals(2, overloads.get(2).getParamCount());
+        assertEquals("void", overloads.get(2).getReturnType());
+        assertEquals("Map<String, List<Date>>", index.getMethods("getTags").get(0).getReturnType());
+        assertEquals("R", index.getMethods("run").get(0).getReturnType());
+
+        // arrays, and varargs by the element type as JavaParser prints them
+        assertEquals("int[][]", index.getMethods("getMatrix").get(0).getReturnType());
+        assertEquals("T", index.getMethods("setValues").get(0).getParamType(0));
+    }
+
+    @Test
+    public void testAdd() {
+        MemberIndex added = new MemberIndex();
+        added.add("setTags", "void", "java.util.Map<java.lang.String, java.util.List<java.util.Date>>");
+        added.add("setTags", "void", "java.util.Map<java.lang.String, java.lang.Object>");
+        assertEquals(2, added.size());
+        assertEquals(Collections.singleton("setTags"), added.getNames());
+        assertEquals("java.util.Map<java.lang.String, java.lang.Object>", added.getMethods("setTags").get(1)
+                .getParamType(0));
+    }
+}
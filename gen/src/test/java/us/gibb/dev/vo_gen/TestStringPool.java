@@ -0,0 +1,44 @@
+package us.gibb.dev.vo_gen;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class TestStringPool {
+
+    @Test
+    public void testFieldsAreShared() {
+        StringPool pool = new StringPool();
+        ClassInfo user = pool.intern(info("User"));
+        ClassInfo account = pool.intern(info("Account"));
+        assertEquals(info("Account").toString(), account.toString());
+
+        FieldInfo userField = user.getFields().get(0);
+        FieldInfo accountField = account.getFields().get(0);
+        assertNotSame(info("User").getFields().get(0).getType(), info("Account").getFields().get(0).getType());
+        assertSame(userField.getName(), accountField.getName());
+        assertSame(userField.getType(), accountField.getType());
+        assertSame(userField.getGetter(), accountField.getGetter());
+        assertSame(userField.getSetter(), accountField.getSetter());
+        assertSame(user.getImports().get(0), account.getImports().get(0));
+        assertSame(user.getPackageName(), account.getPackageName());
+
+        // a pool is scoped to its generation, another one does not hold the strings
+        assertNotSame(userField.getType(), new StringPool().intern(info("User")).getFields().get(0).getType());
+    }
+
+    /**
+     * A class info with new copies of its strings
+     */
+    private static ClassInfo info(String name) {
+        List<FieldInfo> fields = new ArrayList<FieldInfo>();
+        fields.add(new FieldInfo(new String("created"), new String("Date"), new String("getCreated"), new String(
+                "setCreated")));
+        return new ClassInfo(name, new String("us.gibb.dev.vo_gen.model"), fields, Arrays.asList(new String(
+                "java.util.Date")));
+    }
+}
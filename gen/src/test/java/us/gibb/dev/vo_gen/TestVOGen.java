@@ -1,8 +1,28 @@
 package us.gibb.dev.vo_gen;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import static org.junit.Assert.*;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.junit.Test;
 
 public class TestVOGen {
@@ -28,4 +48,653 @@ public class TestVOGen {
         File converter = new File(voPkg, "VO.java");
         assertTrue(converter.exists());
     }
+
+    @Test
+    public void testIncremental() throws Exception {
+        File srcDir = new File("target/incsrc");
+        File modelDir = new File(srcDir, "us/gibb/dev/vo_gen/model");
+        FileUtils.deleteDirectory(srcDir);
+        FileUtils.copyFileToDirectory(new File("src/test/java/us/gibb/dev/vo_gen/model/User.java"), modelDir);
+
+        VOGen gen = new VOGen();
+        gen.setDefaultPackage("us.gibb.dev.vo_gen.model.vo");
+        gen.setOutDir(new File("target/incgen"));
+        gen.setPackages(new String[]{"us.gibb.dev.vo_gen.model"});
+        gen.setSrcDir(srcDir);
+        gen.setMarkerDirectory(new File("target/incmarkers"));
+        gen.generate();
+
+        File voPkg = new File("target/incgen/us/gibb/dev/vo_gen/model/vo");
+        File vo = new File(voPkg, "UserVO.java");
+        File converter = new File(voPkg, "VO.java");
+        assertTrue(vo.exists());
+        assertTrue(converter.setLastModified(1000));
+        assertTrue(vo.setLastModified(1000));
+
+        // nothing changed, nothing is rewritten
+        GenerationReport report = gen.generate();
+        assertEquals(1000, vo.lastModified());
+        assertEquals(1, report.getSources());
+        assertEquals(1, report.getUnchanged());
+        assertEquals(0, report.getPhase(GenerationReport.Phase.WRITE).getCount());
+        assertTrue(report.toJson().contains("\"us.gibb.dev.vo_gen.model\""));
+        assertEquals(1000, converter.lastModified());
+
+        // the VO of a removed source is removed
+        FileUtils.forceDelete(new File(modelDir, "User.java"));
+        gen.generate();
+        assertFalse(vo.exists());
+        assertTrue(converter.lastModified() > 1000);
+
+        // the converter of another default package replaces it
+        gen.setDefaultPackage("us.gibb.dev.vo_gen.model.dto");
+        gen.generate();
+        assertFalse(converter.exists());
+        assertTrue(new File("target/incgen/us/gibb/dev/vo_gen/model/dto/VO.java").exists());
+    }
+
+    @Test
+    public void testWriteIfChanged() throws Exception {
+        VOGen gen = new VOGen();
+        gen.setDefaultPackage("us.gibb.dev.vo_gen.model.vo");
+        gen.setOutDir(new File("target/changedgen"));
+        gen.setPackages(new String[]{"us.gibb.dev.vo_gen.model"});
+        gen.setSrcDir(new File("src/test/java"));
+        gen.setWriteIfChanged(true);
+        gen.generate();
+
+        File voPkg = new File("target/changedgen/us/gibb/dev/vo_gen/model/vo");
+        File vo = new File(voPkg, "UserVO.java");
+        assertTrue(vo.setLastModified(1000));
+        File stale = new File("target/changedgen/us/gibb/dev/old/vo/OldVO.java");
+        FileUtils.touch(stale);
+
+        gen.generate();
+        assertEquals(1000, vo.lastModified());
+        assertFalse(stale.exists());
+        assertFalse(stale.getParentFile().getParentFile().exists());
+    }
+
+    @Test
+    public void testGenerateInMemory() throws Exception {
+        VOGen gen = new VOGen();
+        gen.setDefaultPackage("us.gibb.dev.vo_gen.model.vo");
+        gen.setOutDir(new File("target/memgen"));
+        gen.setPackages(new String[]{"us.gibb.dev.vo_gen.model"});
+        gen.setSrcDir(new File("src/test/java"));
+        Map<String, CharSequence> sources = gen.generateInMemory();
+
+        assertFalse(new File("target/memgen").exists());
+        assertEquals(2, sources.size());
+        CharSequence vo = sources.get("us/gibb/dev/vo_gen/model/vo/UserVO.java");
+        assertTrue(vo.toString().contains("public class UserVO implements Serializable{"));
+        assertTrue(sources.containsKey("us/gibb/dev/vo_gen/model/vo/VO.java"));
+    }
+
+    @Test
+    public void testPipelineParity() throws Exception {
+        File srcDir = new File("target/paritysrc");
+        FileUtils.deleteDirectory(srcDir);
+        FileUtils.copyFileToDirectory(new File("src/test/java/us/gibb/dev/vo_gen/model/User.java"), new File(
+                srcDir, "us/gibb/dev/vo_gen/model"));
+        SyntheticModel model = new SyntheticModel(11, 0, 12);
+        model.writePackage(srcDir, "par.b", 30);
+        model.writePackage(srcDir, "par.a", 30);
+        String[] packages = {"us.gibb.dev.vo_gen.model", "par.b", "par.a"};
+        VOGen gen = new VOGen();
+        gen.setDefaultPackage("us.gibb.dev.vo_gen.model.vo");
+        gen.setPackages(packages);
+        gen.setSrcDir(srcDir);
+
+        // one source after the other, in the order of the packages and the names of the sources
+        Map<String, String> expected = new LinkedHashMap<String, String>();
+        List<ClassInfo> classes = new ArrayList<ClassInfo>();
+        for (String packageName : packages) {
+            File[] files = new File(srcDir, packageName.replace('.', '/')).listFiles();
+            Arrays.sort(files);
+            for (File file : files) {
+                ClassInfo info = gen.extract(packageName, file, FileUtils.readFileToByteArray(file));
+                expected.put(info.getNewPackage().replace('.', '/')+"/"+info.getNewName()+".java", gen.renderVO(
+                        info));
+                classes.add(info);
+            }
+        }
+        expected.put("us/gibb/dev/vo_gen/model/vo/VO.java", gen.renderConverter(classes));
+
+        gen.setThreads(4);
+        Map<String, String> actual = new LinkedHashMap<String, String>();
+        for (Map.Entry<String, CharSequence> source : gen.generateInMemory().entrySet()) {
+            actual.put(source.getKey(), source.getValue().toString());
+        }
+        assertEquals(new ArrayList<String>(expected.keySet()), new ArrayList<String>(actual.keySet()));
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testGenerateArchive() throws Exception {
+        VOGen gen = new VOGen();
+        gen.setDefaultPackage("us.gibb.dev.vo_gen.model.vo");
+        gen.setPackages(new String[]{"us.gibb.dev.vo_gen.model"});
+        gen.setSrcDir(new File("src/test/java"));
+        File archive = new File("target/vo-sources.jar");
+        gen.generate(new ArchiveSink(archive));
+        byte[] first = FileUtils.readFileToByteArray(archive);
+        gen.generate(new ArchiveSink(archive));
+        assertTrue(Arrays.equals(first, FileUtils.readFileToByteArray(archive)));
+
+        ZipFile zip = new ZipFile(archive);
+        try {
+            ZipEntry vo = zip.getEntry("us/gibb/dev/vo_gen/model/vo/UserVO.java");
+            assertNotNull(vo);
+            // the local time of the entry is 1 January 1980 in every time zone
+            assertEquals(ArchiveSink.DEFAULT_TIME - TimeZone.getDefault().getOffset(ArchiveSink.DEFAULT_TIME), vo
+                    .getTime());
+            assertNotNull(zip.getEntry("us/gibb/dev/vo_gen/model/vo/VO.java"));
+        } finally {
+            zip.close();
+        }
+    }
+
+    @Test
+    public void testConverterOfSeveralPackages() throws Exception {
+        File srcDir = new File("target/pkgsrc");
+        FileUtils.deleteDirectory(srcDir);
+        FileUtils.writeStringToFile(new File(srcDir, "a/one/One.java"), entity("a.one", "", "class One",
+                "String name"));
+        FileUtils.writeStringToFile(new File(srcDir, "a/two/Two.java"), entity("a.two", "", "class Two",
+                "Long id"));
+        FileUtils.writeStringToFile(new File(srcDir, "a/two/Alpha.java"), entity("a.two", "", "class Alpha",
+                "Long id"));
+        VOGen gen = new VOGen();
+        gen.setDefaultPackage("a.vo");
+        gen.setPackages(new String[]{"a.one", "a.two"});
+        gen.setSrcDir(srcDir);
+        File archive = new File("target/pkg-sources.jar");
+        gen.generate(new ArchiveSink(archive));
+        assertFalse(new File("target/pkg-sources.jar.tmp").exists());
+
+        // the converter is written once and converts the classes of every package
+        ZipFile zip = new ZipFile(archive);
+        try {
+            String converter = IOUtils.toString(zip.getInputStream(zip.getEntry("a/vo/VO.java")));
+            assertTrue(converter.contains("toVO(One o)"));
+            assertTrue(converter.contains("toVO(Two o)"));
+            // sources are read sorted by name whatever the directory order
+            assertTrue(converter.indexOf("toVO(Alpha o)") < converter.indexOf("toVO(Two o)"));
+        } finally {
+            zip.close();
+        }
+    }
+
+    @Test
+    public void testCache() throws Exception {
+        File cacheDir = new File("target/cache");
+        File outDir = new File("target/cachegen");
+        FileUtils.deleteDirectory(cacheDir);
+        VOGen gen = new VOGen();
+        gen.setDefaultPackage("us.gibb.dev.vo_gen.model.vo");
+        gen.setOutDir(outDir);
+        gen.setPackages(new String[]{"us.gibb.dev.vo_gen.model"});
+        gen.setSrcDir(new File("src/test/java"));
+        gen.setCacheDirectory(cacheDir);
+        assertEquals(0, gen.generate().getCached());
+        Map<String, CharSequence> parsed = gen.generateInMemory();
+
+        // a clean build with the cache restored does not parse again
+        FileUtils.deleteDirectory(outDir);
+        GenerationReport report = gen.generate();
+        assertEquals(1, report.getCached());
+        assertEquals(0, report.getPhase(GenerationReport.Phase.EXTRACT).getCount());
+        for (Map.Entry<String, CharSequence> source : parsed.entrySet()) {
+            assertEquals(source.getValue().toString(), FileUtils.readFileToString(new File(outDir,
+                    source.getKey())));
+        }
+    }
+
+    @Test
+    public void testCachedSuperclass() throws Exception {
+        File srcDir = new File("target/cachesupersrc");
+        File cacheDir = new File("target/cachesuper");
+        File outDir = new File("target/cachesupergen");
+        FileUtils.deleteDirectory(srcDir);
+        FileUtils.deleteDirectory(cacheDir);
+        FileUtils.writeStringToFile(new File(srcDir, "us/gibb/dev/vo_gen/model/Base.java"), entity(
+                "us.gibb.dev.vo_gen.model", "", "class Base", "Long id"));
+        FileUtils.writeStringToFile(new File(srcDir, "us/gibb/dev/vo_gen/model/Account.java"), entity(
+                "us.gibb.dev.vo_gen.model", "", "class Account extends Base", "String name"));
+
+        final AtomicInteger reads = new AtomicInteger();
+        VOGen gen = new VOGen();
+        gen.setDefaultPackage("us.gibb.dev.vo_gen.model.vo");
+        gen.setOutDir(outDir);
+        gen.setPackages(new String[]{"us.gibb.dev.vo_gen.model"});
+        gen.setSrcDir(srcDir);
+        gen.setCacheDirectory(cacheDir);
+        gen.setFrontEnd(new FrontEnd() {
+            private final FrontEnd parser = new JavaParserFrontEnd();
+
+            public TypeSignature read(File file, byte[] content) throws Exception {
+                reads.incrementAndGet();
+                return parser.read(file, content);
+            }
+        });
+        gen.generate();
+        assertTrue(reads.get() >= 2);
+
+        // a clean build with the cache restored does not parse the superclass for its subclass either
+        FileUtils.deleteDirectory(outDir);
+        reads.set(0);
+        assertEquals(2, gen.generate().getCached());
+        assertEquals(0, reads.get());
+        String account = FileUtils.readFileToString(new File(outDir, "us/gibb/dev/vo_gen/model/vo/AccountVO.java"));
+        assertTrue(account.indexOf("Long id") < account.indexOf("String name"));
+    }
+
+    @Test
+    public void testRecursive() throws Exception {
+        File srcDir = new File("target/recsrc");
+        File outDir = new File("target/recgen");
+        FileUtils.deleteDirectory(srcDir);
+        SyntheticModel model = new SyntheticModel(1, 2, 4);
+        String[][] sources = {{"rec.a", "First"}, {"rec.a.b", "Second"}, {"rec.a.b.internal", "Hidden"},
+                {"rec.a.b", "SecondTest"}, {"rec.other", "Other"}};
+        for (String[] source : sources) {
+            FileUtils.writeStringToFile(new File(srcDir, source[0].replace('.', '/')+"/"+source[1]+".java"),
+                    model.source(source[0], source[1], 3));
+        }
+        FileUtils.forceMkdir(new File(srcDir, "rec/a/.svn"));
+
+        VOGen gen = new VOGen();
+        gen.setDefaultPackage("rec.vo");
+        gen.setOutDir(outDir);
+        gen.setPackages(new String[]{"rec.a", "rec.a.b"});
+        gen.setSrcDir(srcDir);
+        gen.setRecursive(true);
+        gen.setExcludes(new String[]{"**/internal/**", "**/*Test.java"});
+        Map<String, CharSequence> sources1 = gen.generateInMemory();
+        assertEquals(new HashSet<String>(Arrays.asList("rec/a/vo/FirstVO.java", "rec/a/b/vo/SecondVO.java",
+                "rec/vo/VO.java")), sources1.keySet());
+
+        gen.setRecursive(false);
+        gen.setExcludes(null);
+        gen.setIncludes(new String[]{"**/S*.java"});
+        Map<String, CharSequence> sources2 = gen.generateInMemory();
+        assertEquals(new HashSet<String>(Arrays.asList("rec/a/b/vo/SecondVO.java", "rec/a/b/vo/SecondTestVO.java",
+                "rec/vo/VO.java")), sources2.keySet());
+    }
+
+    @Test
+    public void testClasses() throws Exception {
+        File srcDir = new File("target/classsrc");
+        FileUtils.deleteDirectory(srcDir);
+        SyntheticModel model = new SyntheticModel(1, 2, 4);
+        String[][] sources = {{"User", "User"}, {"OrderEntity", "OrderEntity"}, {"ItemEntity", "ItemEntity"},
+                {"Other", "Other"}, {"Holder", "Renamed"}};
+        for (String[] source : sources) {
+            FileUtils.writeStringToFile(new File(srcDir, "cls/"+source[0]+".java"), model.source("cls",
+                    source[1], 3));
+        }
+
+        VOGen gen = new VOGen();
+        gen.setDefaultPackage("cls.vo");
+        gen.setOutDir(new File("target/classgen"));
+        gen.setPackages(new String[]{"cls"});
+        gen.setSrcDir(srcDir);
+        gen.setClasses(new String[]{"User", "*Entity"});
+        assertEquals(new HashSet<String>(Arrays.asList("cls/vo/UserVO.java", "cls/vo/OrderEntityVO.java",
+                "cls/vo/ItemEntityVO.java", "cls/vo/VO.java")), gen.generateInMemory().keySet());
+
+        // a class named exactly is found even if its file has another name
+        gen.setClasses(new String[]{"cls.Renamed", "cls.Order*"});
+        assertEquals(new HashSet<String>(Arrays.asList("cls/vo/RenamedVO.java", "cls/vo/OrderEntityVO.java",
+                "cls/vo/VO.java")), gen.generateInMemory().keySet());
+    }
+
+    @Test
+    public void testBytecode() throws Exception {
+        VOGen gen = new VOGen();
+        gen.setDefaultPackage("us.gibb.dev.vo_gen.model.vo");
+        gen.setPackages(new String[]{"us.gibb.dev.vo_gen.model"});
+        gen.setSrcDir(new File("src/test/java"));
+        Map<String, CharSequence> expected = gen.generateInMemory();
+
+        File classesDirectory = new File("target/test-classes");
+        gen.setSrcDir(null);
+        gen.setClassesDirectory(classesDirectory);
+        assertEquals(toStrings(expected), toStrings(gen.generateInMemory()));
+
+        // the same classes from a jar
+        File jar = new File("target/model.jar");
+        JarOutputStream out = new JarOutputStream(new FileOutputStream(jar));
+        try {
+            String dir = "us/gibb/dev/vo_gen/model/";
+            for (File classFile : new File(classesDirectory, dir).listFiles()) {
+                out.putNextEntry(new ZipEntry(dir+classFile.getName()));
+                out.write(FileUtils.readFileToByteArray(classFile));
+            }
+        } finally {
+            out.close();
+        }
+        gen.setClassesDirectory(null);
+        gen.setJars(new File[]{jar});
+        assertEquals(toStrings(expected), toStrings(gen.generateInMemory()));
+    }
+
+    @Test
+    public void testGroups() throws Exception {
+        SyntheticModel model = new SyntheticModel(3, 2, 6);
+        List<GenerationGroup> groups = new ArrayList<GenerationGroup>();
+        for (int i = 0; i < 3; i++) {
+            File srcDir = new File("target/groupsrc"+i);
+            FileUtils.deleteDirectory(srcDir);
+            for (int j = 0; j < 5; j++) {
+                FileUtils.writeStringToFile(new File(srcDir, "grp/g"+i+"/Entity"+j+".java"), model.source("grp.g"
+                        +i, "Entity"+j, i + j));
+            }
+            groups.add(new GenerationGroup(srcDir, new String[]{"grp.g"+i}, "grp.g"+i+".vo", new File(
+                    "target/groupgen"+i)));
+        }
+        VOGen gen = new VOGen();
+        gen.setThreads(2);
+        List<GenerationReport> reports = gen.generate(groups);
+        assertEquals(3, reports.size());
+
+        // the same as generating the groups one at a time
+        for (int i = 0; i < groups.size(); i++) {
+            GenerationGroup group = groups.get(i);
+            assertEquals(5, reports.get(i).getSources());
+            VOGen single = new VOGen();
+            single.setSrcDir(group.getSrcDir());
+            single.setPackages(group.getPackages());
+            single.setDefaultPackage(group.getDefaultPackage());
+            Map<String, CharSequence> expected = single.generateInMemory();
+            assertEquals(6, expected.size());
+            for (Map.Entry<String, CharSequence> source : expected.entrySet()) {
+                assertEquals(source.getValue().toString(), FileUtils.readFileToString(new File(group.getOutDir(),
+                        source.getKey())));
+            }
+        }
+
+        assertTrue(gen.generate(new ArrayList<GenerationGroup>()).isEmpty());
+
+        groups.get(1).setOutDir(groups.get(0).getOutDir());
+        try {
+            gen.generate(groups);
+            fail("groups share an output directory");
+        } catch (GenerationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testConcurrentRequests() throws Exception {
+        SyntheticModel model = new SyntheticModel(3, 2, 6);
+        final List<GenerationRequest> requests = new ArrayList<GenerationRequest>();
+        for (int i = 0; i < 4; i++) {
+            File srcDir = new File("target/requestsrc"+i);
+            FileUtils.deleteDirectory(srcDir);
+            for (int j = 0; j < 5; j++) {
+                FileUtils.writeStringToFile(new File(srcDir, "req/r"+i+"/Entity"+j+".java"), model.source("req.r"
+                        +i, "Entity"+j, i + j));
+            }
+            requests.add(GenerationRequest.builder().srcDir(srcDir).packages("req.r"+i).defaultPackage(
+                    "req.r"+i+".vo").outDir(new File("target/requestgen"+i)).threads(2).build());
+        }
+        final VOGen gen = new VOGen();
+        List<Map<String, String>> expected = new ArrayList<Map<String, String>>();
+        for (GenerationRequest request : requests) {
+            MemorySink sink = new MemorySink();
+            gen.generate(request, sink);
+            expected.add(toStrings(sink.getSources()));
+        }
+
+        // one generator runs the requests of concurrent builds
+        ExecutorService builds = Executors.newFixedThreadPool(requests.size());
+        try {
+            List<Future<Map<String, CharSequence>>> results = new ArrayList<Future<Map<String, CharSequence>>>();
+            for (final GenerationRequest request : requests) {
+                results.add(builds.submit(new Callable<Map<String, CharSequence>>() {
+                    public Map<String, CharSequence> call() throws Exception {
+                        MemorySink sink = new MemorySink();
+                        gen.generate(request, sink);
+                        return sink.getSources();
+                    }
+                }));
+            }
+            for (int i = 0; i < requests.size(); i++) {
+                assertEquals(6, expected.get(i).size());
+                assertEquals(expected.get(i), toStrings(results.get(i).get()));
+            }
+        } finally {
+            builds.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testUpToDateCheck() throws Exception {
+        File srcDir = new File("target/uptodatesrc");
+        File markers = new File("target/uptodatemarkers");
+        File outDir = new File("target/uptodategen");
+        FileUtils.deleteDirectory(srcDir);
+        FileUtils.deleteDirectory(markers);
+        FileUtils.deleteDirectory(outDir);
+        File source = new File(srcDir, "upd/Entity.java");
+        FileUtils.writeStringToFile(source, new SyntheticModel(3, 2, 6).source("upd", "Entity", 0));
+        outDir.mkdirs();
+
+        assertFalse(check(srcDir, markers, outDir, "upd.vo").isUpToDate());
+        check(srcDir, markers, outDir, "upd.vo").save();
+        assertTrue(check(srcDir, markers, outDir, "upd.vo").isUpToDate());
+
+        // a changed setting, source or removed output generates again
+        assertFalse(check(srcDir, markers, outDir, "other.vo").isUpToDate());
+        FileUtils.writeStringToFile(new File(srcDir, "upd/Added.java"), "package upd; public class Added {}");
+        assertFalse(check(srcDir, markers, outDir, "upd.vo").isUpToDate());
+        check(srcDir, markers, outDir, "upd.vo").save();
+        assertTrue(check(srcDir, markers, outDir, "upd.vo").isUpToDate());
+        source.setLastModified(source.lastModified() - 10000);
+        assertFalse(check(srcDir, markers, outDir, "upd.vo").isUpToDate());
+        check(srcDir, markers, outDir, "upd.vo").save();
+        FileUtils.deleteDirectory(outDir);
+        assertFalse(check(srcDir, markers, outDir, "upd.vo").isUpToDate());
+    }
+
+    private static UpToDateCheck check(File srcDir, File markers, File outDir, String defaultPackage) {
+        return new UpToDateCheck(markers).addSetting("defaultPackage", defaultPackage).addPackages(srcDir,
+                new String[]{"upd"}, false).addOutput(outDir);
+    }
+
+    @Test
+    public void testTemplates() throws Exception {
+        File templates = new File("target/templates");
+        FileUtils.deleteDirectory(templates);
+        File voTemplate = new File(templates, "VO.vm");
+        File converterTemplate = new File(templates, "VOs.vm");
+        FileUtils.copyURLToFile(getClass().getResource("/templates/VO.vm"), voTemplate);
+        FileUtils.copyURLToFile(getClass().getResource("/templates/VOs.vm"), converterTemplate);
+
+        VOGen gen = new VOGen();
+        gen.setDefaultPackage("us.gibb.dev.vo_gen.model.vo");
+        gen.setOutDir(new File("target/templategen"));
+        gen.setPackages(new String[]{"us.gibb.dev.vo_gen.model"});
+        gen.setSrcDir(new File("src/test/java"));
+        Map<String, CharSequence> expected = gen.generateInMemory();
+        gen.setMarkerDirectory(new File("target/templatemarkers"));
+        FileUtils.deleteDirectory(gen.getOutDir());
+        FileUtils.deleteDirectory(gen.getMarkerDirectory());
+        gen.setEmitter(new VelocityEmitter(voTemplate.getPath(), converterTemplate.getPath()));
+        gen.generate();
+
+        File voPkg = new File("target/templategen/us/gibb/dev/vo_gen/model/vo");
+        File vo = new File(voPkg, "UserVO.java");
+        File converter = new File(voPkg, "VO.java");
+        assertEquals(expected.get("us/gibb/dev/vo_gen/model/vo/UserVO.java").toString(), FileUtils
+                .readFileToString(vo));
+        assertTrue(vo.setLastModified(1000));
+        assertTrue(converter.setLastModified(1000));
+
+        // a changed VO template renders the VOs again, but not the converter
+        FileUtils.writeStringToFile(voTemplate, "// custom\n"+FileUtils.readFileToString(voTemplate));
+        gen.generate();
+        assertTrue(FileUtils.readFileToString(vo).startsWith("// custom\n"));
+        assertEquals(1000, converter.lastModified());
+
+        // and the other way around
+        assertTrue(vo.setLastModified(1000));
+        FileUtils.writeStringToFile(converterTemplate, "// custom\n"+FileUtils.readFileToString(converterTemplate));
+        gen.generate();
+        assertTrue(FileUtils.readFileToString(converter).startsWith("// custom\n"));
+        assertEquals(1000, vo.lastModified());
+    }
+
+    @Test
+    public void testInheritedProperties() throws Exception {
+        File srcDir = new File("target/inhsrc");
+        File outDir = new File("target/inhgen");
+        FileUtils.deleteDirectory(srcDir);
+        FileUtils.deleteDirectory(outDir);
+        File base = new File(srcDir, "us/gibb/dev/vo_gen/base/BaseEntity.java");
+        FileUtils.writeStringToFile(base, entity("us.gibb.dev.vo_gen.base", "import java.util.Date;\n",
+                "abstract class BaseEntity", "Long id", "Date created"));
+        FileUtils.writeStringToFile(new File(srcDir, "us/gibb/dev/vo_gen/model/AuditedEntity.java"), entity(
+                "us.gibb.dev.vo_gen.model", "import us.gibb.dev.vo_gen.base.BaseEntity;\n",
+                "class AuditedEntity extends BaseEntity", "String modifiedBy"));
+        FileUtils.writeStringToFile(new File(srcDir, "us/gibb/dev/vo_gen/model/Account.java"), entity(
+                "us.gibb.dev.vo_gen.model", "", "class Account extends AuditedEntity", "String name"));
+
+        VOGen gen = new VOGen();
+        gen.setDefaultPackage("us.gibb.dev.vo_gen.model.vo");
+        gen.setOutDir(outDir);
+        gen.setPackages(new String[]{"us.gibb.dev.vo_gen.model"});
+        gen.setSrcDir(srcDir);
+        gen.setMarkerDirectory(new File("target/inhmarkers"));
+        FileUtils.deleteDirectory(gen.getMarkerDirectory());
+        gen.generate();
+
+        // the properties of the superclass in a package that is not generated come first
+        File vo = new File(outDir, "us/gibb/dev/vo_gen/model/vo/AccountVO.java");
+        String account = FileUtils.readFileToString(vo);
+        assertTrue(account.contains("import java.util.Date;"));
+        assertTrue(account.indexOf("Long id") < account.indexOf("Date created"));
+        assertTrue(account.indexOf("Date created") < account.indexOf("String modifiedBy"));
+        assertTrue(account.indexOf("String modifiedBy") < account.indexOf("String name"));
+        assertTrue(vo.setLastModified(1000));
+
+        GenerationReport report = gen.generate();
+        assertEquals(2, report.getUnchanged());
+        assertEquals(1000, vo.lastModified());
+
+        // the superclass outside of the packages is an input of the generation, listed next to the manifest
+        assertTrue(FileUtils.readFileToString(new File(gen.getMarkerDirectory(), Manifest.SUPERCLASSES_FILE_NAME))
+                .contains("BaseEntity.java"));
+        String[] packages = gen.getPackages();
+        new UpToDateCheck(gen.getMarkerDirectory()).addPackages(srcDir, packages, false).addSuperclasses(gen
+                .getMarkerDirectory()).save();
+        assertTrue(new UpToDateCheck(gen.getMarkerDirectory()).addPackages(srcDir, packages, false)
+                .addSuperclasses(gen.getMarkerDirectory()).isUpToDate());
+        assertTrue(base.setLastModified(base.lastModified() - 10000));
+        assertFalse(new UpToDateCheck(gen.getMarkerDirectory()).addPackages(srcDir, packages, false)
+                .addSuperclasses(gen.getMarkerDirectory()).isUpToDate());
+
+        // a changed superclass extracts its subclasses again
+        FileUtils.writeStringToFile(base, entity("us.gibb.dev.vo_gen.base", "import java.util.Date;\n",
+                "abstract class BaseEntity", "Long id", "Date created", "String tenant"));
+        report = gen.generate();
+        assertEquals(0, report.getUnchanged());
+        assertTrue(FileUtils.readFileToString(vo).contains("String tenant"));
+    }
+
+    @Test
+    public void testGenericSuperclass() throws Exception {
+        File srcDir = new File("target/gensrc");
+        FileUtils.deleteDirectory(srcDir);
+        FileUtils.writeStringToFile(new File(srcDir, "us/gibb/dev/vo_gen/base/BaseEntity.java"), entity(
+                "us.gibb.dev.vo_gen.base", "import java.io.Serializable;\nimport java.util.Date;\n",
+                "abstract class BaseEntity<T extends Serializable>", "T id", "Date created"));
+        FileUtils.writeStringToFile(new File(srcDir, "us/gibb/dev/vo_gen/model/Account.java"), entity(
+                "us.gibb.dev.vo_gen.model", "import us.gibb.dev.vo_gen.base.BaseEntity;\n",
+                "class Account extends BaseEntity<Long>", "String name"));
+        FileUtils.writeStringToFile(new File(srcDir, "us/gibb/dev/vo_gen/model/Keyed.java"), entity(
+                "us.gibb.dev.vo_gen.model", "import java.util.List;\nimport us.gibb.dev.vo_gen.base.BaseEntity;\n",
+                "class Keyed<K> extends BaseEntity<K>", "List<K> keys", "String name"));
+        FileUtils.writeStringToFile(new File(srcDir, "us/gibb/dev/vo_gen/model/Customer.java"), entity(
+                "us.gibb.dev.vo_gen.model", "", "class Customer extends Keyed<String>", "int rank"));
+        FileUtils.writeStringToFile(new File(srcDir, "us/gibb/dev/vo_gen/model/Draft.java"), entity(
+                "us.gibb.dev.vo_gen.model", "import us.gibb.dev.vo_gen.base.BaseEntity;\n",
+                "class Draft extends BaseEntity", "String name"));
+
+        for (String frontEnd : Arrays.asList(FrontEnds.JAVAPARSER, FrontEnds.SCANNER)) {
+            VOGen gen = new VOGen();
+            gen.setDefaultPackage("us.gibb.dev.vo_gen.model.vo");
+            gen.setPackages(new String[]{"us.gibb.dev.vo_gen.model"});
+            gen.setSrcDir(srcDir);
+            gen.setFrontEnd(FrontEnds.forName(frontEnd));
+            Map<String, CharSequence> sources = gen.generateInMemory();
+
+            // the type arguments are substituted for the type variables of the superclass
+            String account = sources.get("us/gibb/dev/vo_gen/model/vo/AccountVO.java").toString();
+            assertTrue(account.contains("private Long id;"));
+            assertTrue(account.contains("private Date created;"));
+            String customer = sources.get("us/gibb/dev/vo_gen/model/vo/CustomerVO.java").toString();
+            assertTrue(customer.contains("private String id;"));
+            assertTrue(customer.contains("private List<String> keys;"));
+            assertTrue(customer.contains("private int rank;"));
+
+            // properties of a type variable that is not bound are left out
+            String keyed = sources.get("us/gibb/dev/vo_gen/model/vo/KeyedVO.java").toString();
+            assertFalse(keyed.contains(" id;"));
+            assertFalse(keyed.contains(" keys;"));
+            assertTrue(keyed.contains("private String name;"));
+            String draft = sources.get("us/gibb/dev/vo_gen/model/vo/DraftVO.java").toString();
+            assertFalse(draft.contains(" id;"));
+            assertTrue(draft.contains("private Date created;"));
+        }
+    }
+
+    @Test
+    public void testSuperclassOfAnotherGroup() throws Exception {
+        File baseDir = new File("target/groupbase");
+        File modelDir = new File("target/groupmodel");
+        FileUtils.deleteDirectory(baseDir);
+        FileUtils.deleteDirectory(modelDir);
+        FileUtils.writeStringToFile(new File(baseDir, "grp/base/BaseEntity.java"), entity("grp.base", "",
+                "class BaseEntity", "Long id"));
+        FileUtils.writeStringToFile(new File(modelDir, "grp/model/Account.java"), entity("grp.model",
+                "import grp.base.BaseEntity;\n", "class Account extends BaseEntity", "String name"));
+        List<GenerationGroup> groups = new ArrayList<GenerationGroup>();
+        groups.add(new GenerationGroup(baseDir, new String[]{"grp.base"}, "grp.base.vo", new File(
+                "target/groupbasegen")));
+        groups.add(new GenerationGroup(modelDir, new String[]{"grp.model"}, "grp.model.vo", new File(
+                "target/groupmodelgen")));
+        new VOGen().generate(groups);
+
+        String account = FileUtils.readFileToString(new File("target/groupmodelgen/grp/model/vo/AccountVO.java"));
+        assertTrue(account.indexOf("Long id") < account.indexOf("String name"));
+    }
+
+    /**
+     * A class with a field, getter and setter for every property, ie "String name"
+     */
+    private static String entity(String packageName, String imports, String declaration, String... properties) {
+        StringBuilder buf = new StringBuilder("package "+packageName+";\n"+imports+"public "+declaration+" {\n");
+        for (String property : properties) {
+            String type = property.substring(0, property.indexOf(' '));
+            String name = property.substring(property.indexOf(' ') + 1);
+            String capitalized = Character.toUpperCase(name.charAt(0))+name.substring(1);
+            buf.append("    private ").append(property).append(";\n");
+            buf.append("    public ").append(type).append(" get").append(capitalized).append("() { return ")
+                    .append(name).append("; }\n");
+            buf.append("    public void set").append(capitalized).append("(").append(property).append(") { this.")
+                    .append(name).append(" = ").append(name).append("; }\n");
+        }
+        return buf.append("}\n").toString();
+    }
+
+    private static Map<String, String> toStrings(Map<String, CharSequence> sources) {
+        Map<String, String> strings = new TreeMap<String, String>();
+        for (Map.Entry<String, CharSequence> source : sources.entrySet()) {
+            strings.put(source.getKey(), source.getValue().toString());
+        }
+        return strings;
+    }
 }
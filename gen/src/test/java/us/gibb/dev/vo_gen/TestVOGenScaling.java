@@ -0,0 +1,146 @@
+package us.gibb.dev.vo_gen;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Generates synthetic models of increasing size and fails when a run exceeds the time or heap budget.
+ * Skipped unless vo.scaling is set, run it with "mvn test -Pscaling" which also constrains the heap.
+ * <p>
+ * Settings, as system properties:
+ * <ul>
+ * <li>vo.scaling.classes - comma separated model sizes, default 10000,50000,100000</li>
+ * <li>vo.scaling.minFields, vo.scaling.maxFields - fields per class, default 5 and 500</li>
+ * <li>vo.scaling.packageSize - classes per package, default 1000</li>
+ * <li>vo.scaling.maxMillisPerClass - time budget, default 20</li>
+ * <li>vo.scaling.maxHeapMb - peak heap budget, default 90% of the max heap</li>
+ * </ul>
+ * The source trees are kept in target/scaling and reused, the results are appended to
+ * target/scaling/results.txt.
+ */
+@RunWith(Parameterized.class)
+public class TestVOGenScaling {
+    private static final File ROOT = new File("target/scaling");
+    private static final long SEED = 42;
+
+    private final int classes;
+
+    public TestVOGenScaling(int classes) {
+        this.classes = classes;
+    }
+
+    @Parameters
+    public static Collection<Object[]> sizes() {
+        List<Object[]> sizes = new ArrayList<Object[]>();
+        for (String size : System.getProperty("vo.scaling.classes", "10000,50000,100000").split(",")) {
+            sizes.add(new Object[]{Integer.valueOf(size.trim())});
+        }
+        return sizes;
+    }
+
+    @Before
+    public void assumeEnabled() {
+        Assume.assumeTrue(Boolean.getBoolean("vo.scaling"));
+    }
+
+    @Test
+    public void testScaling() throws Exception {
+        int minFields = Integer.getInteger("vo.scaling.minFields", 5);
+        int maxFields = Integer.getInteger("vo.scaling.maxFields", 500);
+        int packageSize = Integer.getInteger("vo.scaling.packageSize", 1000);
+        String name = classes+"-"+minFields+"-"+maxFields+"-"+packageSize;
+        File srcDir = new File(ROOT, "src-"+name);
+        String[] packages = model(srcDir, minFields, maxFields, packageSize);
+        File outDir = new File(ROOT, "out-"+name);
+
+        VOGen gen = new VOGen();
+        gen.setSrcDir(srcDir);
+        gen.setOutDir(outDir);
+        gen.setPackages(packages);
+        gen.setDefaultPackage("scaling.vo");
+
+        System.gc();
+        List<MemoryPoolMXBean> pools = heapPools();
+        long before = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        for (MemoryPoolMXBean pool : pools) {
+            pool.resetPeakUsage();
+        }
+        long start = System.currentTimeMillis();
+        gen.generate();
+        long millis = Math.max(1, System.currentTimeMillis() - start);
+        long peak = 0;
+        for (MemoryPoolMXBean pool : pools) {
+            peak += pool.getPeakUsage().getUsed();
+        }
+        FileUtils.deleteDirectory(outDir);
+
+        long peakMb = peak / (1024 * 1024);
+        long filesPerSecond = classes * 1000L / millis;
+        String result = String.format("classes=%d fields=%d-%d packageSize=%d threads=%d xmx=%dm millis=%d "
+                +"peakHeapMb=%d baseHeapMb=%d filesPerSecond=%d", classes, minFields, maxFields, packageSize,
+                Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().maxMemory() / (1024 * 1024),
+                millis, peakMb, before / (1024 * 1024), filesPerSecond);
+        System.out.println(result);
+        record(result);
+
+        long maxMillis = classes * Long.getLong("vo.scaling.maxMillisPerClass", 20);
+        long maxHeapMb = Long.getLong("vo.scaling.maxHeapMb", Runtime.getRuntime().maxMemory() * 9 / 10
+                / (1024 * 1024));
+        assertTrue("took "+millis+"ms, budget "+maxMillis+"ms", millis <= maxMillis);
+        assertTrue("peak heap "+peakMb+"MB, budget "+maxHeapMb+"MB", peakMb <= maxHeapMb);
+    }
+
+    /**
+     * Writes the source tree unless a previous run left it complete
+     */
+    private String[] model(File srcDir, int minFields, int maxFields, int packageSize) throws IOException {
+        File complete = new File(srcDir, "complete");
+        if (!complete.exists()) {
+            FileUtils.deleteDirectory(srcDir);
+            new SyntheticModel(SEED, minFields, maxFields).writePackages(srcDir, "scaling", classes, packageSize);
+            FileUtils.touch(complete);
+        }
+        String[] packages = new String[(classes + packageSize - 1) / packageSize];
+        for (int p = 0; p < packages.length; p++) {
+            packages[p] = "scaling.p"+p;
+        }
+        return packages;
+    }
+
+    private static List<MemoryPoolMXBean> heapPools() {
+        List<MemoryPoolMXBean> pools = new ArrayList<MemoryPoolMXBean>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pools.add(pool);
+            }
+        }
+        return pools;
+    }
+
+    private static void record(String result) throws IOException {
+        FileUtils.forceMkdir(ROOT);
+        FileWriter writer = new FileWriter(new File(ROOT, "results.txt"), true);
+        try {
+            writer.write(result+"\n");
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package us.gibb.dev.vo_gen;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Map;
+
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import static org.junit.Assert.*;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+public class TestVOProcessor {
+
+    @Test
+    public void testProcessor() throws Exception {
+        File srcDir = new File("target/procsrc");
+        File outDir = new File("target/procgen");
+        File classesDir = new File("target/procclasses");
+        FileUtils.deleteDirectory(srcDir);
+        FileUtils.deleteDirectory(outDir);
+        FileUtils.deleteDirectory(classesDir);
+        FileUtils.forceMkdir(outDir);
+        FileUtils.forceMkdir(classesDir);
+        String user = FileUtils.readFileToString(new File("src/test/java/us/gibb/dev/vo_gen/model/User.java"));
+        File source = new File(srcDir, "us/gibb/dev/vo_gen/model/User.java");
+        FileUtils.writeStringToFile(source, user.replace("public class User",
+                "@us.gibb.dev.vo_gen.GenerateVO\npublic class User"));
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        StandardJavaFileManager files = compiler.getStandardFileManager(null, null, null);
+        try {
+            JavaCompiler.CompilationTask task = compiler.getTask(null, files, null, Arrays.asList("-proc:only",
+                    "-classpath", "target/classes"+File.pathSeparator+"target/test-classes", "-s", outDir
+                            .getPath(), "-d", classesDir.getPath(), "-A"+VOProcessor.CONVERTER_PACKAGE+"=us.gibb.dev.vo_gen.model.vo"), null,
+                    files.getJavaFileObjects(source));
+            task.setProcessors(Arrays.asList(new VOProcessor()));
+            assertTrue(task.call());
+        } finally {
+            files.close();
+        }
+
+        // the same sources as parsing the source
+        VOGen gen = new VOGen();
+        gen.setDefaultPackage("us.gibb.dev.vo_gen.model.vo");
+        gen.setPackages(new String[]{"us.gibb.dev.vo_gen.model"});
+        gen.setSrcDir(new File("src/test/java"));
+        Map<String, CharSequence> expected = gen.generateInMemory();
+        assertEquals(2, expected.size());
+        for (Map.Entry<String, CharSequence> generated : expected.entrySet()) {
+            assertEquals(generated.getValue().toString(), FileUtils.readFileToString(new File(outDir, generated
+                    .getKey())));
+        }
+    }
+
+    @Test
+    public void testRecompileOne() throws Exception {
+        File srcDir = new File("target/procsrc2");
+        File outDir = new File("target/procgen2");
+        File classesDir = new File("target/procclasses2");
+        FileUtils.deleteDirectory(srcDir);
+        FileUtils.deleteDirectory(outDir);
+        FileUtils.deleteDirectory(classesDir);
+        FileUtils.forceMkdir(outDir);
+        FileUtils.forceMkdir(classesDir);
+        File user = new File(srcDir, "us/gibb/dev/vo_gen/model/User.java");
+        FileUtils.writeStringToFile(user, "package us.gibb.dev.vo_gen.model;\n@us.gibb.dev.vo_gen.GenerateVO\n"
+                +"public class User {\n    private String username;\n}\n");
+        File account = new File(srcDir, "us/gibb/dev/vo_gen/model/Account.java");
+        FileUtils.writeStringToFile(account, "package us.gibb.dev.vo_gen.model;\n"
+                +"@us.gibb.dev.vo_gen.GenerateVO\npublic class Account {\n    private long number;\n}\n");
+        File converter = new File(outDir, "us/gibb/dev/vo_gen/model/vo/VO.java");
+
+        compile(outDir, classesDir, user, account);
+        assertTrue(FileUtils.readFileToString(converter).contains("AccountVO"));
+
+        // an incremental build compiling only the user still converts the account
+        compile(outDir, classesDir, user);
+        String content = FileUtils.readFileToString(converter);
+        assertTrue(content.contains("UserVO"));
+        assertTrue(content.contains("AccountVO"));
+
+        // and no longer once the account was deleted
+        assertTrue(new File(classesDir, "us/gibb/dev/vo_gen/model/Account.class").delete());
+        compile(outDir, classesDir, user);
+        content = FileUtils.readFileToString(converter);
+        assertTrue(content.contains("UserVO"));
+        assertFalse(content.contains("AccountVO"));
+    }
+
+    private void compile(File outDir, File classesDir, File... sources) throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        StandardJavaFileManager files = compiler.getStandardFileManager(null, null, null);
+        try {
+            JavaCompiler.CompilationTask task = compiler.getTask(null, files, null, Arrays.asList("-classpath",
+                    "target/classes"+File.pathSeparator+classesDir.getPath(), "-s", outDir.getPath(), "-d",
+                    classesDir.getPath(), "-A"+VOProcessor.CONVERTER_PACKAGE+"=us.gibb.dev.vo_gen.model.vo"),
+                    null, files.getJavaFileObjects(sources));
+            task.setProcessors(Arrays.asList(new VOProcessor()));
+            assertTrue(task.call());
+        } finally {
+            files.close();
+        }
+    }
+}
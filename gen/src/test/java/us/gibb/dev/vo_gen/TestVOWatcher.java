@@ -0,0 +1,82 @@
+package us.gibb.dev.vo_gen;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+public class TestVOWatcher {
+
+    @Test(timeout = 60000)
+    public void testWatch() throws Exception {
+        File srcDir = new File("target/watchsrc");
+        File modelDir = new File(srcDir, "us/gibb/dev/vo_gen/model");
+        File outDir = new File("target/watchgen");
+        FileUtils.deleteDirectory(srcDir);
+        FileUtils.deleteDirectory(outDir);
+        FileUtils.copyFileToDirectory(new File("src/test/java/us/gibb/dev/vo_gen/model/User.java"), modelDir);
+
+        VOGen gen = new VOGen();
+        gen.setDefaultPackage("us.gibb.dev.vo_gen.model.vo");
+        gen.setOutDir(outDir);
+        gen.setPackages(new String[]{"us.gibb.dev.vo_gen.model"});
+        gen.setSrcDir(srcDir);
+        final VOWatcher watcher = new VOWatcher(gen);
+        watcher.setDebounceMillis(50);
+        final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+        Thread thread = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    watcher.watch();
+                } catch (Exception e) {
+                    failure.set(e);
+                }
+            }
+        });
+        thread.start();
+        try {
+            File voPkg = new File(outDir, "us/gibb/dev/vo_gen/model/vo");
+            File user = new File(voPkg, "UserVO.java");
+            File account = new File(voPkg, "AccountVO.java");
+            File converter = new File(voPkg, "VO.java");
+            waitFor(user, "getUsername");
+
+            FileUtils.writeStringToFile(new File(modelDir, "Account.java"), "package us.gibb.dev.vo_gen.model;\n"
+                    +"public class Account {\n"
+                    +"    private String owner;\n"
+                    +"    public String getOwner() { return owner; }\n"
+                    +"    public void setOwner(String owner) { this.owner = owner; }\n"
+                    +"}\n");
+            waitFor(account, "getOwner");
+            waitFor(converter, "toVO(Account o)");
+            assertTrue(FileUtils.readFileToString(converter).contains("toVO(User o)"));
+
+            FileUtils.forceDelete(new File(modelDir, "User.java"));
+            while (user.exists()) {
+                Thread.sleep(20);
+            }
+            assertTrue(account.exists());
+        } finally {
+            watcher.close();
+            thread.join();
+        }
+        assertNull(failure.get());
+    }
+
+    @Test(expected = GenerationException.class)
+    public void testWatchClasses() throws Exception {
+        VOGen gen = new VOGen();
+        gen.setPackages(new String[]{"us.gibb.dev.vo_gen.model"});
+        gen.setClassesDirectory(new File("target/test-classes"));
+        new VOWatcher(gen).watch();
+    }
+
+    private static void waitFor(File file, String content) throws Exception {
+        while (!file.exists() || !FileUtils.readFileToString(file).contains(content)) {
+            Thread.sleep(20);
+        }
+    }
+}
@@ -20,11 +20,15 @@
 package us.gibb.dev.vo_gen_mojo;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -34,21 +38,34 @@ import org.apache.maven.project.MavenProject;
 
 /**
  * Manages switching to the classloader needed for creating the java sources and restoring the old classloader
- * when finished
+ * when finished.
+ * <p>
+ * The jars of the classpath are loaded by a loader that is cached per JVM by the context loader and the
+ * paths, sizes and modification times of the jars, so the modules of a build with the same dependencies
+ * share it instead of opening the same jars again. The least recently used loaders are closed once more than
+ * {@link #MAX_LOADERS} are cached and no execution uses them. The class directories, which change between
+ * builds, get a loader of their own on every switch. It looks in the directories before the jars, so the
+ * classes of the project win over those of its dependencies. System properties are left alone.
  */
 public class ClassLoaderSwitcher {
+    static final int MAX_LOADERS = 4;
+
+    /**
+     * The parent and fingerprint of the jars to their loader, least recently used first
+     */
+    private static final Map<Key, CachedLoader> LOADERS = new LinkedHashMap<Key, CachedLoader>(16, 0.75f, true);
 
     private Log log;
-    private String origClassPath;
-    private Map<Object, Object> origProps;
     private ClassLoader origContextClassloader;
+    private CachedLoader jarLoader;
+    private URLClassLoader loader;
 
     public ClassLoaderSwitcher(Log log) {
         this.log = log;
     }
 
     /**
-     * Create and set the classloader that is needed for creating the java sources from wsdl
+     * Create and set the classloader that is needed for creating the java sources
      * 
      * @param project
      * @param useCompileClasspath
@@ -56,66 +73,232 @@ public class ClassLoaderSwitcher {
      */
     @SuppressWarnings("unchecked")
     public void switchClassLoader(MavenProject project, boolean useCompileClasspath, File classesDir) {
-        List<URL> urlList = new ArrayList<URL>();
-        StringBuffer buf = new StringBuffer();
-
-        try {
-            urlList.add(classesDir.toURI().toURL());
-            if (!useCompileClasspath) {
-                urlList.add(new File(project.getBuild().getOutputDirectory()).toURI().toURL());
-            }
-        } catch (MalformedURLException e) {
-            // ignore
-        }
+        List<URL> directories = new ArrayList<URL>();
+        List<URL> jars = new ArrayList<URL>();
+        StringBuilder fingerprint = new StringBuilder(4096);
 
-        buf.append(classesDir.getAbsolutePath());
-        buf.append(File.pathSeparatorChar);
+        addURL(directories, classesDir);
         if (!useCompileClasspath) {
-            buf.append(project.getBuild().getOutputDirectory());
-            buf.append(File.pathSeparatorChar);
+            File outputDirectory = new File(project.getBuild().getOutputDirectory());
+            if (!outputDirectory.getAbsoluteFile().equals(classesDir.getAbsoluteFile())) {
+                addURL(directories, outputDirectory);
+            }
         }
         List<Artifact> artifacts = useCompileClasspath ? project.getCompileArtifacts() : project.getTestArtifacts();
         for (Artifact a : artifacts) {
-            try {
-                if (a.getFile() != null && a.getFile().exists()) {
-                    urlList.add(a.getFile().toURI().toURL());
-                    buf.append(a.getFile().getAbsolutePath());
-                    buf.append(File.pathSeparatorChar);
-                    //log.info(a.getFile().getAbsolutePath());
-                }
-            } catch (MalformedURLException e) {
-                // ignore
+            File file = a.getFile();
+            if (file == null || !file.exists()) {
+                continue;
+            }
+            if (file.isDirectory()) {
+                // a module of the reactor that was not packaged
+                addURL(directories, file);
+            } else if (addURL(jars, file)) {
+                fingerprint.append(file.getAbsolutePath()).append(' ').append(file.length()).append(' ').append(
+                        file.lastModified()).append(File.pathSeparatorChar);
             }
         }
 
-        origContextClassloader = Thread.currentThread().getContextClassLoader();
-        URLClassLoader loader = new URLClassLoader(urlList.toArray(new URL[urlList.size()]),
-                                                   origContextClassloader);
-        String newCp = buf.toString();
-
-        log.info("Classpath: " + urlList.toString());
+        switchClassLoader(directories, jars, fingerprint.toString());
+    }
 
-        origProps = new HashMap<Object, Object>(System.getProperties());
+    /**
+     * @param fingerprint identifies the content of the jars
+     */
+    void switchClassLoader(List<URL> directories, List<URL> jars, String fingerprint) {
+        origContextClassloader = Thread.currentThread().getContextClassLoader();
+        jarLoader = acquire(fingerprint, jars, origContextClassloader);
+        loader = new DirectoryLoader(directories.toArray(new URL[directories.size()]), jarLoader.loader,
+                origContextClassloader);
 
-        origClassPath = System.getProperty("java.class.path");
+        if (log.isDebugEnabled()) {
+            log.debug("Classpath: " + directories + jars);
+        }
 
         Thread.currentThread().setContextClassLoader(loader);
-        System.setProperty("java.class.path", newCp);
     }
 
     /**
      * Restore the old classloader
      */
     public void restoreClassLoader() {
+        if (loader == null) {
+            return;
+        }
         Thread.currentThread().setContextClassLoader(origContextClassloader);
-        System.setProperty("java.class.path", origClassPath);
+        close(loader);
+        release(jarLoader);
+        loader = null;
+        jarLoader = null;
+    }
+
+    private static boolean addURL(List<URL> urls, File file) {
+        try {
+            urls.add(file.toURI().toURL());
+            return true;
+        } catch (MalformedURLException e) {
+            // ignore
+            return false;
+        }
+    }
+
+    /**
+     * The cached loader of the jars, created if there is none
+     */
+    private CachedLoader acquire(String fingerprint, List<URL> jars, ClassLoader parent) {
+        Key key = new Key(parent, fingerprint);
+        List<CachedLoader> evicted = new ArrayList<CachedLoader>();
+        CachedLoader cached;
+        synchronized (LOADERS) {
+            cached = LOADERS.get(key);
+            if (cached == null) {
+                cached = new CachedLoader(new URLClassLoader(jars.toArray(new URL[jars.size()]), parent));
+                LOADERS.put(key, cached);
+                log.debug("Created the classloader of " + jars.size() + " jars");
+            }
+            cached.users++;
+            Iterator<CachedLoader> lru = LOADERS.values().iterator();
+            while (LOADERS.size() > MAX_LOADERS && lru.hasNext()) {
+                CachedLoader eldest = lru.next();
+                if (eldest != cached) {
+                    lru.remove();
+                    eldest.evicted = true;
+                    if (eldest.users == 0) {
+                        evicted.add(eldest);
+                    }
+                }
+            }
+        }
+        for (CachedLoader eldest : evicted) {
+            close(eldest.loader);
+        }
+        return cached;
+    }
+
+    /**
+     * Closes the loader if it was evicted while in use
+     */
+    private void release(CachedLoader cached) {
+        boolean close;
+        synchronized (LOADERS) {
+            cached.users--;
+            close = cached.evicted && cached.users == 0;
+        }
+        if (close) {
+            close(cached.loader);
+        }
+    }
+
+    private void close(URLClassLoader closing) {
+        try {
+            closing.close();
+        } catch (IOException e) {
+            log.warn("Unable to close the classloader: " + e.getMessage());
+        }
+    }
+
+    /**
+     * The parent of a cached loader, compared by identity, and the fingerprint of its jars
+     */
+    private static class Key {
+        final ClassLoader parent;
+        final String fingerprint;
+
+        Key(ClassLoader parent, String fingerprint) {
+            this.parent = parent;
+            this.fingerprint = fingerprint;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return parent == other.parent && fingerprint.equals(other.fingerprint);
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(parent) * 31 + fingerprint.hashCode();
+        }
+    }
+
+    /**
+     * A cached loader and the number of executions using it, guarded by {@link ClassLoaderSwitcher#LOADERS}
+     */
+    private static class CachedLoader {
+        final URLClassLoader loader;
+        int users;
+        boolean evicted;
+
+        CachedLoader(URLClassLoader loader) {
+            this.loader = loader;
+        }
+    }
+
+    /**
+     * Loads from the class directories before its parent, the loader of the jars, but after the context
+     * loader the jars are loaded by, like a loader of the whole classpath in the order of the directories
+     * and jars
+     */
+    private static class DirectoryLoader extends URLClassLoader {
+        private final ClassLoader context;
+
+        DirectoryLoader(URL[] directories, URLClassLoader jars, ClassLoader context) {
+            super(directories, jars);
+            this.context = context != null ? context : ClassLoader.getSystemClassLoader();
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> c = findLoadedClass(name);
+                if (c == null) {
+                    try {
+                        c = context.loadClass(name);
+                    } catch (ClassNotFoundException e) {
+                        try {
+                            c = findClass(name);
+                        } catch (ClassNotFoundException notInDirectories) {
+                            c = getParent().loadClass(name);
+                        }
+                    }
+                }
+                if (resolve) {
+                    resolveClass(c);
+                }
+                return c;
+            }
+        }
+
+        @Override
+        public URL getResource(String name) {
+            URL url = context.getResource(name);
+            if (url == null) {
+                url = findResource(name);
+            }
+            if (url == null) {
+                url = getParent().getResource(name);
+            }
+            return url;
+        }
+
+        @Override
+        public Enumeration<URL> getResources(String name) throws IOException {
+            // the loader of the jars finds those of the context loader again
+            Map<String, URL> urls = new LinkedHashMap<String, URL>();
+            add(urls, context.getResources(name));
+            add(urls, findResources(name));
+            add(urls, getParent().getResources(name));
+            return Collections.enumeration(urls.values());
+        }
 
-        Map<Object, Object> newProps = new HashMap<Object, Object>(System.getProperties());
-        for (Object o : newProps.keySet()) {
-            if (!origProps.containsKey(o)) {
-                System.clearProperty(o.toString());
+        private static void add(Map<String, URL> urls, Enumeration<URL> found) {
+            while (found.hasMoreElements()) {
+                URL url = found.nextElement();
+                urls.put(url.toExternalForm(), url);
             }
         }
-        System.getProperties().putAll(origProps);
     }
 }
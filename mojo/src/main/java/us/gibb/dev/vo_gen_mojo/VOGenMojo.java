@@ -20,12 +20,26 @@
 package us.gibb.dev.vo_gen_mojo;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.artifact.Artifact;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.MavenProjectHelper;
 
+import us.gibb.dev.vo_gen.ArchiveSink;
+import us.gibb.dev.vo_gen.Emitters;
+import us.gibb.dev.vo_gen.FrontEnds;
+import us.gibb.dev.vo_gen.GenerationGroup;
+import us.gibb.dev.vo_gen.GenerationReport;
+import us.gibb.dev.vo_gen.UpToDateCheck;
 import us.gibb.dev.vo_gen.VOGen;
+import us.gibb.dev.vo_gen.VelocityEmitter;
 
 /**
  * @goal vo-gen
@@ -48,18 +62,60 @@ public class VOGenMojo extends AbstractMojo {
      */
     File sourceRoot;
 
+    /**
+     * Archive to stream the generated sources into instead of writing them below sourceRoot, not supported
+     * with groups
+     * 
+     * @parameter expression="${vo.archive}"
+     */
+    File archive;
+
+    /**
+     * Classifier the archive is attached to the project with
+     * 
+     * @parameter expression="${vo.archiveClassifier}" default-value="vo-sources"
+     */
+    String archiveClassifier;
+
+    /**
+     * File the timing and allocation of every generation phase is written to as JSON
+     * 
+     * @parameter expression="${vo.reportFile}" default-value="${project.build.directory}/vo-gen-report.json"
+     */
+    File reportFile;
+
     /**
      * @parameter expression="${project.build.outputDirectory}"
      * @required
      */
     String classesDirectory;
 
+    /**
+     * Generate from the compiled classes in classesDirectory instead of the sources in javaRoot, the goal
+     * has to run after compile
+     * 
+     * @parameter expression="${vo.bytecode}" default-value="false"
+     */
+    boolean bytecode;
+
+    /**
+     * Dependencies whose classes are generated from instead of the sources, as groupId:artifactId
+     * 
+     * @parameter
+     */
+    String modelArtifacts[];
+
     /**
      * @parameter expression="${project}"
      * @required
      */
     MavenProject project;
 
+    /**
+     * @component
+     */
+    MavenProjectHelper projectHelper;
+
     /**
      * Use the compile classpath rather than the test classpath for execution useful if the test dependencies
      * clash with those of vogen
@@ -77,17 +133,38 @@ public class VOGenMojo extends AbstractMojo {
      * A list of 
      * 
      * @parameter
-     * @required
      */
     String packages[];
 
     /**
-     * A list of 
+     * Patterns of the classes to generate from, ie "User", "*Entity" or "us.gibb.model.**", all classes
+     * if empty. Sources are selected by file name before they are parsed.
      * 
      * @parameter
      */
     String classes[];
 
+    /**
+     * Generate the subpackages of the packages as well
+     * 
+     * @parameter expression="${vo.recursive}" default-value="false"
+     */
+    boolean recursive;
+
+    /**
+     * Globs of the sources to generate from, relative to javaRoot, ie "**&#47;model/*.java"
+     * 
+     * @parameter
+     */
+    String includes[];
+
+    /**
+     * Globs of the sources not to generate from, relative to javaRoot, ie "**&#47;*Test.java"
+     * 
+     * @parameter
+     */
+    String excludes[];
+
     /**
      * @parameter expression="${vo.javaRoot}" default-value="${basedir}/src/main/java"
      */
@@ -95,18 +172,82 @@ public class VOGenMojo extends AbstractMojo {
 
     /**
      * @parameter expression="${vo.converterPackage}"
-     * @required
      */
     String defaultPackage;
 
     /**
-     * Directory in which the "DONE" markers are saved that
+     * Source roots generated in one pass instead of javaRoot, packages, converterPackage and sourceRoot,
+     * each with its own srcDir, packages, defaultPackage and outDir. The other parameters but archive apply
+     * to all. Not supported by the watch goal.
+     * 
+     * @parameter
+     */
+    GenerationGroup groups[];
+
+    /**
+     * Number of threads used to parse and to render, 0 uses the number of available processors
+     * 
+     * @parameter expression="${vo.threads}" default-value="0"
+     */
+    int threads;
+
+    /**
+     * How the sources are written, "velocity" for the templates, "java" to emit them directly or the class
+     * name of a us.gibb.dev.vo_gen.Emitter
+     * 
+     * @parameter expression="${vo.emitter}" default-value="velocity"
+     */
+    String emitter;
+
+    /**
+     * Velocity template the VOs are rendered with instead of the built in one, a file relative to basedir
+     * or a resource on the classpath
+     * 
+     * @parameter expression="${vo.voTemplate}"
+     */
+    String voTemplate;
+
+    /**
+     * Velocity template the converters are rendered with instead of the built in one, a file relative to
+     * basedir or a resource on the classpath
+     * 
+     * @parameter expression="${vo.converterTemplate}"
+     */
+    String converterTemplate;
+
+    /**
+     * How the sources are read, "javaparser" to parse them completely, "scanner" to only scan their
+     * declarations or the class name of a us.gibb.dev.vo_gen.FrontEnd
+     * 
+     * @parameter expression="${vo.frontEnd}" default-value="javaparser"
+     */
+    String frontEnd;
+
+    /**
+     * Only write generated files whose content changed, so unchanged files keep their modification time
+     * and are not compiled again
+     * 
+     * @parameter expression="${vo.writeIfChanged}" default-value="false"
+     */
+    boolean writeIfChanged;
+
+    /**
+     * Directory in which the manifest of the last generation is saved, only sources that changed since are
+     * parsed and rendered again
      * 
      * @parameter expression="${vo.genmarkerDirectory}"
      *            default-value="${project.build.directory}/vo_gen_mojo_markers"
      */
     File markerDirectory;
 
+    /**
+     * Directory in which the class infos parsed from the sources are cached by content, so a build with a
+     * restored cache does not parse the sources that did not change
+     * 
+     * @parameter expression="${vo.cacheDirectory}" default-value="${project.build.directory}/vo-gen-cache"
+     */
+    File cacheDirectory;
+
     /**
      * The local repository taken from Maven's runtime. Typically $HOME/.m2/repository.
      * 
@@ -148,31 +289,203 @@ public class VOGenMojo extends AbstractMojo {
     // private ArtifactResolver artifactResolver;
 
     public void execute() throws MojoExecutionException {
-        //ClassLoaderSwitcher classLoaderSwitcher = new ClassLoaderSwitcher(getLog());
+        boolean batch = groups != null && groups.length > 0;
+        if (!batch && (packages == null || defaultPackage == null)) {
+            throw new MojoExecutionException("packages and converterPackage are required without groups");
+        }
+        if (batch && archive != null) {
+            throw new MojoExecutionException("archive is not supported with groups, each group is written to "
+                    + "its outDir");
+        }
         try {
-            VOGen gen = new VOGen();
-            gen.setClasses(classes);
-            gen.setDefaultPackage(defaultPackage);
-            gen.setSrcDir(javaRoot);
-            gen.setPackages(packages);
-            gen.setOutDir(sourceRoot);
-            gen.setTestOption(testOption);
-            gen.setLog(new MojoLog(getLog()));
-            gen.generate();
+            UpToDateCheck check = upToDateCheck(batch);
+            if (check != null && check.isUpToDate()) {
+                getLog().info("Value objects are up to date");
+            } else {
+                generate(batch);
+                if (check != null) {
+                    check.save();
+                }
+            }
         } catch (Exception e) {
             throw new MojoExecutionException(e.getMessage(), e);
+        }
+        addSourceRoots(batch);
+    }
 
+    private void generate(boolean batch) throws Exception {
+        // custom emitters and front ends are loaded from the project's classpath
+        ClassLoaderSwitcher classLoaderSwitcher = new ClassLoaderSwitcher(getLog());
+        if (project != null) {
+            classLoaderSwitcher.switchClassLoader(project, useCompileClasspath, new File(classesDirectory));
+        }
+        try {
+            VOGen gen = createGen();
+            if (batch) {
+                StringBuilder json = new StringBuilder("[");
+                for (GenerationReport report : gen.generate(Arrays.asList(groups))) {
+                    json.append(json.length() > 1 ? ",\n" : "").append(report.toJson());
+                }
+                writeReport(json.append("]").toString());
+            } else if (archive != null) {
+                writeReport(gen.generate(new ArchiveSink(archive)).toJson());
+            } else {
+                writeReport(gen.generate().toJson());
+            }
         } finally {
             // cleanup as much as we can.
-            //classLoaderSwitcher.restoreClassLoader();
+            classLoaderSwitcher.restoreClassLoader();
+        }
+    }
+
+    /**
+     * Checks the inputs of the last generation, null if there is no marker directory to keep them in
+     */
+    private UpToDateCheck upToDateCheck(boolean batch) throws MojoExecutionException {
+        if (markerDirectory == null) {
+            return null;
+        }
+        UpToDateCheck check = new UpToDateCheck(markerDirectory);
+        check.addSetting("classes", classes).addSetting("recursive", recursive).addSetting("includes", includes)
+                .addSetting("excludes", excludes).addSetting("testOption", testOption).addSetting("emitter",
+                        emitter).addSetting("frontEnd", frontEnd).addSetting("writeIfChanged", writeIfChanged)
+                .addSetting("cacheDirectory", cacheDirectory).addSetting("archive", archive);
+        for (String template : new String[]{voTemplate, converterTemplate}) {
+            if (template != null) {
+                check.addFile(template(template));
+            }
+        }
+        File[] jars = modelJars();
+        if (jars != null) {
+            for (File jar : jars) {
+                check.addFile(jar);
+            }
         }
-        if (project != null && sourceRoot != null && sourceRoot.exists()) {
+        if (batch) {
+            for (int i = 0; i < groups.length; i++) {
+                GenerationGroup group = groups[i];
+                check.addSetting("group", group).addSetting("packages", group.getPackages()).addSetting(
+                        "defaultPackage", group.getDefaultPackage()).addPackages(group.getSrcDir(),
+                        group.getPackages(), recursive).addOutput(group.getOutDir());
+                // where the generation keeps the manifest of the group
+                check.addSuperclasses(group.getMarkerDirectory() != null ? group.getMarkerDirectory()
+                        : new File(markerDirectory, String.valueOf(i)));
+            }
+            return check;
+        }
+        check.addSetting("packages", packages).addSetting("defaultPackage", defaultPackage).addSetting(
+                "sourceRoot", sourceRoot).addSuperclasses(markerDirectory);
+        if (bytecode) {
+            check.addPackages(new File(classesDirectory), packages, recursive);
+        } else if (jars == null) {
+            check.addPackages(javaRoot, packages, recursive);
+        }
+        return check.addOutput(archive != null ? archive : sourceRoot);
+    }
+
+    private void addSourceRoots(boolean batch) {
+        if (project != null && archive != null && archive.exists()) {
+            // javac only reads sources from directories, the archive is attached as a sources artifact
+            projectHelper.attachArtifact(project, "jar", archiveClassifier, archive);
+        }
+        if (project != null && !batch && archive == null && sourceRoot != null && sourceRoot.exists()) {
             project.addCompileSourceRoot(sourceRoot.getAbsolutePath());
         }
+        if (project != null && batch) {
+            for (GenerationGroup group : groups) {
+                project.addCompileSourceRoot(group.getOutDir().getAbsolutePath());
+            }
+        }
         if (project != null && testSourceRoot != null && testSourceRoot.exists()) {
             project.addTestCompileSourceRoot(testSourceRoot.getAbsolutePath());
         }
+    }
 
-        System.gc();
+    /**
+     * A generator configured with the parameters of the goal
+     */
+    protected VOGen createGen() throws Exception {
+        VOGen gen = new VOGen();
+        gen.setClasses(classes);
+        gen.setDefaultPackage(defaultPackage);
+        gen.setSrcDir(javaRoot);
+        if (bytecode) {
+            gen.setClassesDirectory(new File(classesDirectory));
+        }
+        gen.setJars(modelJars());
+        gen.setPackages(packages);
+        gen.setRecursive(recursive);
+        gen.setIncludes(includes);
+        gen.setExcludes(excludes);
+        gen.setOutDir(sourceRoot);
+        gen.setTestOption(testOption);
+        gen.setThreads(threads);
+        gen.setMarkerDirectory(markerDirectory);
+        gen.setCacheDirectory(cacheDirectory);
+        gen.setWriteIfChanged(writeIfChanged);
+        if (voTemplate != null || converterTemplate != null) {
+            gen.setEmitter(new VelocityEmitter(voTemplate == null ? VelocityEmitter.VO_TEMPLATE
+                    : templatePath(voTemplate), converterTemplate == null ? VelocityEmitter.CONVERTER_TEMPLATE
+                    : templatePath(converterTemplate)));
+        } else if (!Emitters.VELOCITY.equals(emitter)) {
+            // the shared Velocity engine is only initialized once something is rendered
+            gen.setEmitter(Emitters.forName(emitter));
+        }
+        gen.setFrontEnd(FrontEnds.forName(frontEnd));
+        gen.setLog(new MojoLog(getLog()));
+        return gen;
+    }
+
+    /**
+     * The file of a template, relative to basedir
+     */
+    private File template(String template) {
+        File file = new File(template);
+        if (!file.isAbsolute() && project != null) {
+            file = new File(project.getBasedir(), template);
+        }
+        return file;
+    }
+
+    /**
+     * The path of a template file, or the template unchanged if it is a classpath resource
+     */
+    private String templatePath(String template) {
+        File file = template(template);
+        return file.isFile() ? file.getAbsolutePath() : template;
+    }
+
+    /**
+     * The jars of the model artifacts among the dependencies
+     */
+    @SuppressWarnings("unchecked")
+    private File[] modelJars() throws MojoExecutionException {
+        if (modelArtifacts == null || modelArtifacts.length == 0) {
+            return null;
+        }
+        List<Artifact> artifacts = useCompileClasspath ? project.getCompileArtifacts() : project.getTestArtifacts();
+        List<File> jars = new ArrayList<File>();
+        for (String modelArtifact : modelArtifacts) {
+            File jar = null;
+            for (Artifact a : artifacts) {
+                if (modelArtifact.trim().equals(a.getGroupId()+":"+a.getArtifactId())) {
+                    jar = a.getFile();
+                }
+            }
+            if (jar == null || !jar.isFile()) {
+                throw new MojoExecutionException("No jar of the model artifact "+modelArtifact
+                        +" among the dependencies");
+            }
+            jars.add(jar);
+        }
+        return jars.toArray(new File[jars.size()]);
+    }
+
+    private void writeReport(String json) throws IOException {
+        if (reportFile == null) {
+            return;
+        }
+        FileUtils.writeStringToFile(reportFile, json, "UTF-8");
+        getLog().info("Generation report: "+reportFile);
     }
 }
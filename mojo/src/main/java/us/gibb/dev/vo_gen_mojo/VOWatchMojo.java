@@ -0,0 +1,65 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package us.gibb.dev.vo_gen_mojo;
+
+import org.apache.maven.plugin.MojoExecutionException;
+
+import us.gibb.dev.vo_gen.VOWatcher;
+
+/**
+ * Keeps regenerating the Value Objects while the sources are edited, until the build is interrupted
+ * 
+ * @goal watch
+ * @description Regenerate Value Objects on change
+ * @requiresDependencyResolution compile
+ */
+public class VOWatchMojo extends VOGenMojo {
+    /**
+     * How long the sources have to be quiet before regenerating, in milliseconds
+     * 
+     * @parameter expression="${vo.debounceMillis}" default-value="100"
+     */
+    long debounceMillis;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        if (groups != null && groups.length > 0) {
+            throw new MojoExecutionException("groups are not supported by the watch goal, configure javaRoot, "
+                    + "packages, converterPackage and sourceRoot instead");
+        }
+        if (bytecode || (modelArtifacts != null && modelArtifacts.length > 0)) {
+            throw new MojoExecutionException("bytecode and modelArtifacts are not supported by the watch goal, "
+                    + "only the sources of javaRoot are watched");
+        }
+        try {
+            final VOWatcher watcher = new VOWatcher(createGen());
+            watcher.setDebounceMillis(debounceMillis);
+            Runtime.getRuntime().addShutdownHook(new Thread() {
+                @Override
+                public void run() {
+                    watcher.close();
+                }
+            });
+            watcher.watch();
+        } catch (Exception e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+    }
+}
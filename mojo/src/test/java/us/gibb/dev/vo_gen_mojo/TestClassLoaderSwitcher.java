@@ -0,0 +1,119 @@
+package us.gibb.dev.vo_gen_mojo;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import static org.junit.Assert.*;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Test;
+
+public class TestClassLoaderSwitcher {
+
+    @Test
+    public void testCacheHit() throws Exception {
+        List<URL> jars = Arrays.asList(jar("hit", "hit.txt", "jar").toURI().toURL());
+        ClassLoaderSwitcher first = new ClassLoaderSwitcher(new SystemStreamLog());
+        ClassLoaderSwitcher second = new ClassLoaderSwitcher(new SystemStreamLog());
+        first.switchClassLoader(Collections.<URL>emptyList(), jars, "hit");
+        ClassLoader firstLoader = Thread.currentThread().getContextClassLoader();
+        first.restoreClassLoader();
+        second.switchClassLoader(Collections.<URL>emptyList(), jars, "hit");
+        try {
+            // the executions share the loader of the jars, each has its own for the directories
+            assertNotSame(firstLoader, Thread.currentThread().getContextClassLoader());
+            assertSame(firstLoader.getParent(), Thread.currentThread().getContextClassLoader().getParent());
+        } finally {
+            second.restoreClassLoader();
+        }
+        ClassLoader firstJars = firstLoader.getParent();
+
+        // a different context loader gets a loader of its own
+        ClassLoader context = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(new ClassLoader(context) {
+        });
+        try {
+            first.switchClassLoader(Collections.<URL>emptyList(), jars, "hit");
+            assertNotSame(firstJars, Thread.currentThread().getContextClassLoader().getParent());
+            first.restoreClassLoader();
+        } finally {
+            Thread.currentThread().setContextClassLoader(context);
+        }
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        List<URL> jars = Arrays.asList(jar("evicted", "evicted.txt", "jar").toURI().toURL());
+        ClassLoaderSwitcher switcher = new ClassLoaderSwitcher(new SystemStreamLog());
+        switcher.switchClassLoader(Collections.<URL>emptyList(), jars, "evicted");
+        ClassLoader evicted = Thread.currentThread().getContextClassLoader().getParent();
+        assertNotNull(evicted.getResource("evicted.txt"));
+        switcher.restoreClassLoader();
+
+        for (int i = 0; i < ClassLoaderSwitcher.MAX_LOADERS; i++) {
+            switcher.switchClassLoader(Collections.<URL>emptyList(), Collections.<URL>emptyList(), "other"+i);
+            switcher.restoreClassLoader();
+        }
+        // the least recently used loader was closed, the jars are opened again
+        assertNull(evicted.getResource("evicted.txt"));
+        switcher.switchClassLoader(Collections.<URL>emptyList(), jars, "evicted");
+        try {
+            assertNotSame(evicted, Thread.currentThread().getContextClassLoader().getParent());
+        } finally {
+            switcher.restoreClassLoader();
+        }
+    }
+
+    @Test
+    public void testPrecedence() throws Exception {
+        File directory = new File("target/precedence-classes");
+        FileUtils.deleteDirectory(directory);
+        FileUtils.writeStringToFile(new File(directory, "precedence.txt"), "directory");
+        List<URL> jars = new ArrayList<URL>();
+        jars.add(jar("precedence", "precedence.txt", "jar").toURI().toURL());
+        ClassLoaderSwitcher switcher = new ClassLoaderSwitcher(new SystemStreamLog());
+        switcher.switchClassLoader(Arrays.asList(directory.toURI().toURL()), jars, "precedence");
+        try {
+            // the classes of the project win over those of the dependencies
+            ClassLoader loader = Thread.currentThread().getContextClassLoader();
+            assertEquals("directory", read(loader.getResource("precedence.txt")));
+            assertEquals(2, Collections.list(loader.getResources("precedence.txt")).size());
+            // the classes of the plugin still come first
+            assertSame(ClassLoaderSwitcher.class, loader.loadClass(ClassLoaderSwitcher.class.getName()));
+        } finally {
+            switcher.restoreClassLoader();
+        }
+    }
+
+    private static File jar(String name, String entry, String content) throws Exception {
+        File jar = new File("target/"+name+".jar");
+        JarOutputStream out = new JarOutputStream(new FileOutputStream(jar));
+        try {
+            out.putNextEntry(new ZipEntry(entry));
+            out.write(content.getBytes("UTF-8"));
+            out.closeEntry();
+        } finally {
+            out.close();
+        }
+        return jar;
+    }
+
+    private static String read(URL url) throws Exception {
+        InputStream in = url.openStream();
+        try {
+            return IOUtils.toString(in, "UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+}